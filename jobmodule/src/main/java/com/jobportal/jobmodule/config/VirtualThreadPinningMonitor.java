@@ -0,0 +1,90 @@
+package com.jobportal.jobmodule.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ bật khi chạy virtual thread (spring.threads.virtual.enabled=true).
+ * Nghe event JFR jdk.VirtualThreadPinned (synchronized, native/driver call giữ carrier thread)
+ * và đẩy ra metrics; mỗi vị trí pin chỉ log stack 1 lần
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final int MAX_LOGGED_SITES = 256;
+
+    private final Counter pinnedCount;
+    private final Timer pinnedDuration;
+    private final Counter submitFailed;
+    private final Duration threshold;
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.virtual-threads.pinned-threshold-ms:20}") long thresholdMs) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedCount = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .register(meterRegistry);
+        this.pinnedDuration = Timer.builder("jvm.threads.virtual.pinned.duration")
+                .publishPercentiles(0.99)
+                .register(meterRegistry);
+        this.submitFailed = Counter.builder("jvm.threads.virtual.submit.failed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.enable("jdk.VirtualThreadSubmitFailed");
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.onEvent("jdk.VirtualThreadSubmitFailed", e -> submitFailed.increment());
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold={}ms)", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        pinnedDuration.record(event.getDuration());
+
+        String site = topFrame(event);
+        if (loggedSites.size() < MAX_LOGGED_SITES && loggedSites.add(site)) {
+            log.warn("Virtual thread pinned for {}ms at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    private static String topFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "unknown";
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (!frame.isJavaFrame()) continue;
+            String type = frame.getMethod().getType().getName();
+            // Bỏ qua frame nội bộ JDK để chỉ ra code gây pin
+            if (type.startsWith("java.") || type.startsWith("jdk.")) continue;
+            return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+        }
+        return "jdk-internal";
+    }
+}
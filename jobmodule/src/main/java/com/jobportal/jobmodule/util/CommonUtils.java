@@ -3,6 +3,7 @@ package com.jobportal.jobmodule.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.jobportal.jobmodule.data.pojo.MyPair;
 import io.micrometer.common.util.StringUtils;
 import lombok.SneakyThrows;
@@ -62,6 +63,15 @@ public class CommonUtils {
     private static final String phoneValidate = "(?:([+]\\d{1,4})[-.\\s]?)?(?:[(](\\d{1,3})[)][-.\\s]?)?(\\d{1,4})[-.\\s]?(\\d{1,4})[-.\\s]?(\\d{1,9})";
 
 
+    // Chỉ dùng nội bộ (getJSON); ra ngoài luôn qua getObjectMapper() -> copy
+    private static final ObjectMapper SHARED_MAPPER = createObjectMapper();
+    private static final ClassValue<ObjectWriter> SHARED_WRITERS = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return SHARED_MAPPER.writerFor(type);
+        }
+    };
+
     static MessageDigest md = null;
 
     static {
@@ -735,7 +745,15 @@ public class CommonUtils {
         return str != null && str.matches("-?\\d+");
     }
 
+    /**
+     * Bản copy của mapper dùng chung: caller được configure tuỳ ý mà không ảnh hưởng getJSON.
+     * Serialize thường xuyên thì dùng getJSON (writer cache sẵn theo class)
+     */
     public static ObjectMapper getObjectMapper() {
+        return SHARED_MAPPER.copy();
+    }
+
+    private static ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
 
         //Bỏ qua field không mapping được
@@ -753,7 +771,7 @@ public class CommonUtils {
 
     public static String getJSON(Object obj) {
         try {
-            return getObjectMapper().writeValueAsString(obj);
+            return obj == null ? "null" : SHARED_WRITERS.get(obj.getClass()).writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Failed to convert object to JSON", e);
         }
@@ -0,0 +1,44 @@
+package com.jobportal.jobmodule.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+    @Test
+    void onlyAccessTokensPassValidation() {
+        assertFalse(SecurityConfig.accessTokenValidator().validate(token("access")).hasErrors());
+        assertTrue(SecurityConfig.accessTokenValidator().validate(token("refresh")).hasErrors());
+        assertTrue(SecurityConfig.accessTokenValidator().validate(token(null)).hasErrors());
+    }
+
+    @Test
+    void rolesAndPermissionsBecomeAuthorities() {
+        Set<String> authorities = SecurityConfig.jwtAuthenticationConverter().convert(token("access"))
+                .getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of("ROLE_EMPLOYER", "JOB_POST", "JOB_EDIT"), authorities);
+    }
+
+    private static Jwt token(String tokenUse) {
+        Jwt.Builder builder = Jwt.withTokenValue("token")
+                .header("alg", "ES256")
+                .subject("alice")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(600))
+                .claim("roles", List.of("EMPLOYER"))
+                .claim("permissions", List.of("JOB_POST", "JOB_EDIT"));
+        if (tokenUse != null) builder.claim(SecurityConfig.TOKEN_USE_CLAIM, tokenUse);
+        return builder.build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.usermodule.config;
 
+import com.example.usermodule.data.pojo.PasswordHashingProperties;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,14 +10,15 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class AppBeansConfig {
 
-    // PasswordEncoder dùng chung
+    // PasswordEncoder dùng chung, cost bcrypt chọn theo máy lúc startup
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties) {
+        return new BCryptPasswordEncoder(tuneBcryptStrength(properties));
     }
 
     // AuthenticationManager
@@ -24,4 +27,24 @@ public class AppBeansConfig {
         return config.getAuthenticationManager();
     }
 
+
+    /**
+     * Đo 1 lần hash ở minStrength, mỗi bậc cost tăng gấp đôi thời gian
+     * nên chọn cost lớn nhất mà vẫn <= targetMillis
+     */
+    private static int tuneBcryptStrength(PasswordHashingProperties properties) {
+        int min = properties.getMinStrength();
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(min);
+        probe.encode("warm-up");
+
+        long start = System.nanoTime();
+        probe.encode("cost-probe");
+        double millis = Math.max(1, (System.nanoTime() - start) / 1_000_000.0);
+
+        int extra = (int) Math.floor(Math.log(properties.getTargetMillis() / millis) / Math.log(2));
+        int strength = Math.max(min, Math.min(properties.getMaxStrength(), min + extra));
+        log.info("BCrypt strength {} selected ({} ms at strength {}, target {} ms)",
+                strength, String.format("%.1f", millis), min, properties.getTargetMillis());
+        return strength;
+    }
 }
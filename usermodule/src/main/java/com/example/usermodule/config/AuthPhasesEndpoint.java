@@ -0,0 +1,71 @@
+package com.example.usermodule.config;
+
+import com.example.usermodule.service.AuthMetrics;
+import com.example.usermodule.service.AuthMetrics.Flow;
+import com.example.usermodule.service.AuthMetrics.Outcome;
+import com.example.usermodule.service.AuthMetrics.Phase;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /actuator/authphases: tóm tắt auth.phase + auth.outcome theo luồng (login, refresh, request),
+ * thời gian tính bằng ms; bỏ qua pha/kết quả chưa phát sinh
+ */
+@Component
+@Endpoint(id = "authphases")
+@RequiredArgsConstructor
+public class AuthPhasesEndpoint {
+
+    private final AuthMetrics authMetrics;
+
+    @ReadOperation
+    public Map<String, Object> phases() {
+        Map<String, Object> flows = new LinkedHashMap<>();
+        for (Flow flow : Flow.values()) {
+            Map<String, Object> outcomes = new LinkedHashMap<>();
+            for (Outcome outcome : Outcome.values()) {
+                double count = authMetrics.counter(flow, outcome).count();
+                if (count > 0) outcomes.put(outcome.tag(), (long) count);
+            }
+
+            Map<String, Object> phases = new LinkedHashMap<>();
+            for (Phase phase : Phase.values()) {
+                if (phase.flow() != flow) continue;
+                Map<String, Object> byOutcome = new LinkedHashMap<>();
+                putIfRecorded(byOutcome, "success", authMetrics.timer(phase, true));
+                putIfRecorded(byOutcome, "failure", authMetrics.timer(phase, false));
+                if (!byOutcome.isEmpty()) phases.put(phase.tag(), byOutcome);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("outcomes", outcomes);
+            summary.put("phases", phases);
+            flows.put(flow.tag(), summary);
+        }
+        return flows;
+    }
+
+    private static void putIfRecorded(Map<String, Object> target, String key, Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        if (snapshot.count() == 0) return;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", snapshot.count());
+        stats.put("totalMs", snapshot.total(TimeUnit.MILLISECONDS));
+        stats.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile p : snapshot.percentileValues()) {
+            stats.put("p" + Math.round(p.percentile() * 100) + "Ms", p.value(TimeUnit.MILLISECONDS));
+        }
+        target.put(key, stats);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.usermodule.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Bean Module được Spring Boot tự đăng ký vào ObjectMapper dùng chung (MVC + JsonResponseWriter)
+    @Bean
+    @ConditionalOnProperty(name = "app.json.blackbird", havingValue = "true")
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
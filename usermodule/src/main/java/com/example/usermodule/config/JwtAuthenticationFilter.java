@@ -1,9 +1,13 @@
 package com.example.usermodule.config;
 
-import com.example.usermodule.data.entity.User;
+import com.example.usermodule.data.pojo.JwtProperties;
 import com.example.usermodule.repository.UserRepository;
-import com.example.usermodule.service.JwtService;
-import io.jsonwebtoken.Claims;
+import com.example.usermodule.service.AccessTokenDenylist;
+import com.example.usermodule.service.AuthMetrics;
+import com.example.usermodule.service.AuthMetrics.Flow;
+import com.example.usermodule.service.AuthMetrics.Outcome;
+import com.example.usermodule.service.AuthMetrics.Phase;
+import com.example.usermodule.service.VerifiedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -12,7 +16,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -20,16 +23,19 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenDenylist accessTokenDenylist;
     private final UserRepository userRepository;
+    private final JwtProperties jwtProperties;
+    private final AuthMetrics authMetrics;
 
     private static final String COOKIE_NAME = "ACCESS_TOKEN";
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -57,47 +63,49 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        String username;
+        // Verify token 1 lần (hoặc lấy từ cache): chữ ký + hạn dùng + subject
+        long t = System.nanoTime();
+        VerifiedTokenCache.Entry entry;
         try {
-            username = jwtService.extractUsername(token);
+            entry = verifiedTokenCache.verify(token);
         } catch (Exception ex) {
+            authMetrics.reject(Phase.REQUEST_TOKEN_VERIFY, t, Outcome.TOKEN_INVALID);
             filterChain.doFilter(request, response);
             return;
         }
 
+        // Token đã bị thu hồi (logout / đổi mật khẩu): coi như không có token
+        if (accessTokenDenylist.isRevoked(entry.getToken())) {
+            authMetrics.reject(Phase.REQUEST_TOKEN_VERIFY, t, Outcome.REVOKED);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        t = authMetrics.success(Phase.REQUEST_TOKEN_VERIFY, t);
+
         // Nếu chưa có auth trong context thì mới set
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            User user = userRepository.findByUsername(username).orElse(null);
-
-            if (user != null && jwtService.validateToken(token, user.getUsername())) {
-                // Lấy claims từ token
-                Claims claims = jwtService.parseClaims(token);
-
-                List<String> roles = claims.get("roles", List.class);
-                List<String> perms = claims.get("permissions", List.class);
-
-                // Map roles & perms thành GrantedAuthority
-                Collection<GrantedAuthority> authorities = new ArrayList<>();
-                if (roles != null) {
-                    authorities.addAll(
-                            roles.stream()
-                                    .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
-                                    .collect(Collectors.toList())
-                    );
-                }
-                if (perms != null) {
-                    authorities.addAll(
-                            perms.stream()
-                                    .map(SimpleGrantedAuthority::new)
-                                    .collect(Collectors.toList())
-                    );
-                }
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Object principal;
+
+            if (jwtProperties.isStateless()) {
+                // Stateless: chỉ tin vào token đã verify, không truy vấn DB
+                principal = entry.getPrincipal();
+            } else {
+                principal = userRepository.findByUsername(entry.getToken().getSubject()).orElse(null);
+            }
+
+            if (principal != null) {
+                // Authorities đã được dựng sẵn khi verify
+                Collection<GrantedAuthority> authorities = entry.getAuthorities();
 
                 var authToken = new UsernamePasswordAuthenticationToken(
-                        user, null, authorities
+                        principal, null, authorities
                 );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                authToken.setDetails(DETAILS_SOURCE.buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                authMetrics.success(Phase.REQUEST_AUTHORITY_BUILD, t);
+                authMetrics.outcome(Flow.REQUEST, Outcome.SUCCESS);
+            } else {
+                authMetrics.reject(Phase.REQUEST_AUTHORITY_BUILD, t, Outcome.USER_NOT_FOUND);
             }
         }
 
@@ -0,0 +1,29 @@
+package com.example.usermodule.config.jfr;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+@Configuration
+@ConditionalOnProperty(name = "app.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrConfig {
+
+    // static: BeanPostProcessor phải tạo trước các bean khác, không kéo theo config này.
+    // Gắn interceptor lúc factory tạo proxy repository (trước afterPropertiesSet)
+    @Bean
+    public static BeanPostProcessor repositoryCallEventPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(
+                                    new RepositoryCallInterceptor(information.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Event;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Danh sách event JFR của module + hàm hash username (không ghi username gốc vào file .jfr).
+ * Hash là HMAC-SHA256 với key phía server (app.jfr.username-hash-key, trống = key ngẫu nhiên mỗi lần khởi động)
+ * nên không dò ngược được bằng từ điển; chỉ tính khi event thực sự được commit (shouldCommit)
+ */
+public final class JfrEvents {
+
+    public static final String CATEGORY = "Job Portal";
+
+    public static final List<Class<? extends Event>> TYPES = List.of(
+            TokenVerifyEvent.class,
+            TokenIssueEvent.class,
+            PasswordCheckEvent.class,
+            RepositoryCallEvent.class,
+            SsoProvisionEvent.class
+    );
+
+    private static final String HMAC = "HmacSHA256";
+
+    private static volatile SecretKeySpec usernameHashKey = randomKey();
+
+    private JfrEvents() {
+    }
+
+    // Key cố định giữa các node / lần khởi động để so sánh hash giữa các recording
+    public static void setUsernameHashKey(byte[] key) {
+        usernameHashKey = new SecretKeySpec(key, HMAC);
+    }
+
+    // 16 ký tự hex đầu của HMAC: đủ để nhóm theo user, không lộ username
+    public static String usernameHash(String username) {
+        if (username == null) return null;
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(usernameHashKey);
+            byte[] digest = mac.doFinal(username.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static SecretKeySpec randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, HMAC);
+    }
+}
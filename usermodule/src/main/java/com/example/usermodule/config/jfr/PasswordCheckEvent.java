@@ -0,0 +1,34 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("jobportal.auth.PasswordCheck")
+@Label("Password Check")
+@Category({JfrEvents.CATEGORY, "Auth"})
+@Description("bcrypt password check on the password-hashing pool, including queue wait")
+@StackTrace(false)
+public class PasswordCheckEvent extends Event {
+
+    @Label("Username Hash")
+    public String usernameHash;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    @Label("Cost")
+    public int cost;
+
+    @Label("Matched")
+    public boolean matched;
+
+    // Hàng đợi đầy / hết thời gian chờ (ServiceBusyException)
+    @Label("Rejected")
+    public boolean rejected;
+}
@@ -0,0 +1,31 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("jobportal.persistence.RepositoryCall")
+@Label("Repository Call")
+@Category({JfrEvents.CATEGORY, "Persistence"})
+@Description("Spring Data repository method call with JDBC statement and row counts when inside a request")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    // Số phần tử trả về (collection/Optional/entity) hoặc số dòng cập nhật (@Modifying)
+    @Label("Result Rows")
+    public long resultRows;
+
+    // -1 khi ngoài request (không có SqlStats)
+    @Label("JDBC Statements")
+    public int statements;
+
+    @Label("JDBC Rows")
+    public long jdbcRows;
+}
@@ -0,0 +1,64 @@
+package com.example.usermodule.config.jfr;
+
+import com.example.usermodule.config.sql.SqlStats;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bọc mỗi lời gọi repository bằng RepositoryCallEvent; không có recording thì chỉ tốn 1 lần kiểm tra isEnabled()
+ */
+class RepositoryCallInterceptor implements MethodInterceptor {
+
+    private final String repository;
+
+    RepositoryCallInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+
+        SqlStats stats = SqlStats.current();
+        int statementsBefore = stats != null ? stats.statements() : 0;
+        long rowsBefore = stats != null ? stats.rows() : 0;
+        Object result = null;
+        event.begin();
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.method = invocation.getMethod().getName();
+                event.resultRows = rowsOf(result);
+                event.statements = stats != null ? stats.statements() - statementsBefore : -1;
+                event.jdbcRows = stats != null ? stats.rows() - rowsBefore : -1;
+                event.commit();
+            }
+        }
+    }
+
+    static long rowsOf(Object result) {
+        if (result == null) return 0;
+        if (result instanceof Number n) return n.longValue();
+        if (result instanceof Optional<?> o) return o.isPresent() ? 1 : 0;
+        if (result instanceof Collection<?> c) return c.size();
+        if (result instanceof Map<?, ?> m) return m.size();
+        if (result instanceof Iterable<?> i) {
+            long n = 0;
+            for (Object ignored : i) n++;
+            return n;
+        }
+        if (result instanceof Boolean) return 0;
+        return 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("jobportal.sso.ProvisionStep")
+@Label("SSO Provision Step")
+@Category({JfrEvents.CATEGORY, "SSO"})
+@Description("SSO provisioning step: upsert_account, rbac_load, token_sign, rotate_refresh_token")
+@StackTrace(false)
+public class SsoProvisionEvent extends Event {
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Step")
+    public String step;
+
+    @Label("Username Hash")
+    public String usernameHash;
+
+    // Số dòng ghi (upsert_account, rotate_refresh_token) hoặc số role + permission (rbac_load)
+    @Label("Rows")
+    public long rows;
+
+    public static SsoProvisionEvent start(String provider, String step) {
+        SsoProvisionEvent event = new SsoProvisionEvent();
+        event.begin();
+        event.provider = provider;
+        event.step = step;
+        return event;
+    }
+
+    public void complete(String username, long rows) {
+        end();
+        if (shouldCommit()) {
+            this.usernameHash = JfrEvents.usernameHash(username);
+            this.rows = rows;
+            commit();
+        }
+    }
+}
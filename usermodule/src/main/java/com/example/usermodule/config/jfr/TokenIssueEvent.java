@@ -0,0 +1,26 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("jobportal.auth.TokenIssue")
+@Label("Token Issue")
+@Category({JfrEvents.CATEGORY, "Auth"})
+@Description("Signing of access and refresh tokens")
+@StackTrace(false)
+public class TokenIssueEvent extends Event {
+
+    @Label("Username Hash")
+    public String usernameHash;
+
+    // access, refresh, pair
+    @Label("Kind")
+    public String kind;
+
+    @Label("Permissions")
+    public int permissions;
+}
@@ -0,0 +1,25 @@
+package com.example.usermodule.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("jobportal.auth.TokenVerify")
+@Label("Token Verify")
+@Category({JfrEvents.CATEGORY, "Auth"})
+@Description("Access token verification in JwtAuthenticationFilter (verified-token cache hit or full signature check)")
+@StackTrace(false)
+public class TokenVerifyEvent extends Event {
+
+    @Label("Username Hash")
+    public String usernameHash;
+
+    @Label("Cached")
+    public boolean cached;
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,22 @@
+package com.example.usermodule.config.sql;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Số JDBC statement (và số dòng) tối đa cho 1 request vào handler này, tính cả filter (JWT, denylist).
+ * Vượt thì tăng db.request.budget.exceeded + log warn; app.sql-budget.enforce=true (test) thì request lỗi
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int statements();
+
+    // -1: không giới hạn
+    long rows() default -1;
+}
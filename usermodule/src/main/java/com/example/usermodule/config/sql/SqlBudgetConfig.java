@@ -0,0 +1,49 @@
+package com.example.usermodule.config.sql;
+
+import com.example.usermodule.data.pojo.SqlBudgetProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+// Tắt mặc định: mọi Statement / ResultSet.next() đi qua Proxy reflection. Bật ở dev / test hoặc khi cần đo
+@Configuration
+@ConditionalOnProperty(name = "app.sql-budget.enabled", havingValue = "true")
+public class SqlBudgetConfig implements WebMvcConfigurer {
+
+    // static: BeanPostProcessor phải tạo trước các bean khác, không kéo theo config này
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Trước Spring Security (-100) để tính cả statement của JwtAuthenticationFilter / denylist
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(MeterRegistry meterRegistry,
+                                                                   SqlBudgetProperties properties) {
+        FilterRegistrationBean<SqlBudgetFilter> registration =
+                new FilterRegistrationBean<>(new SqlBudgetFilter(meterRegistry, properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlBudgetInterceptor());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.usermodule.config.sql;
+
+import com.example.usermodule.data.pojo.SqlBudgetProperties;
+import com.example.usermodule.exception.SqlBudgetExceededException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mở SqlStats cho mỗi request (đứng trước Spring Security nên tính cả JWT filter),
+ * cuối request ghi histogram theo handler và kiểm tra @SqlBudget:
+ * - db.request.statements, db.request.rows, db.request.time {handler}
+ * - db.request.budget.exceeded {handler}
+ * Khi chain trả về, body thường đã ghi xong (response đã commit): ở đây chỉ còn đếm + log.
+ * Chặn thật (enforce) nằm ở SqlBudgetResponseAdvice, trước khi ghi body; filter chỉ ném khi response chưa commit
+ */
+@Slf4j
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final SqlBudgetProperties properties;
+
+    public SqlBudgetFilter(MeterRegistry meterRegistry, SqlBudgetProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStats stats = SqlStats.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStats.end();
+            record(stats);
+            if (stats.overBudget()) {
+                meterRegistry.counter("db.request.budget.exceeded", "handler", stats.handler()).increment();
+                log.warn(stats.overBudgetMessage());
+            }
+        }
+
+        // Advice đã chặn trước khi ghi body; còn lại (vd. handler không có body) chỉ ném được khi chưa commit
+        if (properties.isEnforce() && stats.overBudget() && !response.isCommitted()) {
+            throw new SqlBudgetExceededException(stats.overBudgetMessage());
+        }
+    }
+
+    private void record(SqlStats stats) {
+        String handler = stats.handler();
+        DistributionSummary.builder("db.request.statements")
+                .tag("handler", handler)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.statements());
+        DistributionSummary.builder("db.request.rows")
+                .tag("handler", handler)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.rows());
+        Timer.builder("db.request.time")
+                .tag("handler", handler)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.nanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.usermodule.config.sql;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Gắn tên handler (Controller.method, dùng làm tag metrics) và @SqlBudget (method, hoặc class) vào SqlStats
+ */
+public class SqlBudgetInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStats stats = SqlStats.current();
+        if (stats != null && handler instanceof HandlerMethod method) {
+            SqlBudget budget = method.getMethodAnnotation(SqlBudget.class);
+            if (budget == null) {
+                budget = AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), SqlBudget.class);
+            }
+            stats.handler(method.getBeanType().getSimpleName() + "." + method.getMethod().getName(), budget);
+        }
+        return true;
+    }
+}
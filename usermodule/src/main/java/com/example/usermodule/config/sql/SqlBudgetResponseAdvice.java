@@ -0,0 +1,57 @@
+package com.example.usermodule.config.sql;
+
+import com.example.usermodule.data.pojo.SqlBudgetProperties;
+import com.example.usermodule.exception.SqlBudgetExceededException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ngoài profile prod: trả số liệu JDBC của request trong header (ghi ngay trước body, lúc response chưa commit).
+ * Với enforce, request vượt @SqlBudget bị lỗi tại đây (GlobalExceptionHandler trả lỗi thay cho body).
+ * Response ghi thẳng ra servlet (OAuth2 handler, stream) không có header này, chỉ có metrics
+ */
+@Profile("!prod")
+@ConditionalOnProperty(name = "app.sql-budget.enabled", havingValue = "true")
+@RestControllerAdvice
+public class SqlBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENTS_HEADER = "X-DB-Statements";
+    public static final String ROWS_HEADER = "X-DB-Rows";
+    public static final String TIME_HEADER = "X-DB-Time-Ms";
+
+    private final SqlBudgetProperties properties;
+
+    public SqlBudgetResponseAdvice(SqlBudgetProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStats stats = SqlStats.current();
+        if (stats != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, Integer.toString(stats.statements()));
+            response.getHeaders().set(ROWS_HEADER, Long.toString(stats.rows()));
+            response.getHeaders().set(TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.nanos())));
+            if (properties.isEnforce() && stats.overBudget()) {
+                throw new SqlBudgetExceededException(stats.overBudgetMessage());
+            }
+        }
+        return body;
+    }
+}
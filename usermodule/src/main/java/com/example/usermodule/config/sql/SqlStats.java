@@ -0,0 +1,76 @@
+package com.example.usermodule.config.sql;
+
+/**
+ * Bộ đếm JDBC của request hiện tại (statements, rows, thời gian DB), gắn vào thread xử lý request.
+ * Công việc chạy trên thread khác (StreamingResponseBody, @Async) không được tính
+ */
+public final class SqlStats {
+
+    private static final ThreadLocal<SqlStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long nanos;
+    private String handler = "unmapped";
+    private SqlBudget budget;
+
+    static SqlStats begin() {
+        SqlStats stats = new SqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static SqlStats current() {
+        return CURRENT.get();
+    }
+
+    void statement(long elapsedNanos, long affectedRows) {
+        statements++;
+        nanos += elapsedNanos;
+        if (affectedRows > 0) rows += affectedRows;
+    }
+
+    void fetch(long elapsedNanos, boolean hasRow) {
+        nanos += elapsedNanos;
+        if (hasRow) rows++;
+    }
+
+    void handler(String handler, SqlBudget budget) {
+        this.handler = handler;
+        this.budget = budget;
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    public String handler() {
+        return handler;
+    }
+
+    public SqlBudget budget() {
+        return budget;
+    }
+
+    public boolean overBudget() {
+        return budget != null
+                && (statements > budget.statements() || (budget.rows() >= 0 && rows > budget.rows()));
+    }
+
+    String overBudgetMessage() {
+        return "SQL budget exceeded for %s: %d statements / %d rows (budget %d / %s)".formatted(
+                handler, statements, rows, budget.statements(), budget.rows() < 0 ? "unlimited" : budget.rows());
+    }
+}
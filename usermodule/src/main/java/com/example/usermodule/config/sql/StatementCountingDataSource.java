@@ -0,0 +1,120 @@
+package com.example.usermodule.config.sql;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Bọc DataSource (Hikari) để đếm statement / dòng / thời gian vào SqlStats của request hiện tại.
+ * Ngoài request (scheduled job, stream nền) chỉ tốn 1 lần tra ThreadLocal mỗi lời gọi.
+ * Là DelegatingDataSource nên metrics Hikari vẫn unwrap được pool bên dưới
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, obtainTargetDataSource().getConnection(), this::connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, obtainTargetDataSource().getConnection(username, password), this::connection);
+    }
+
+    private Object connection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        return switch (method.getName()) {
+            case "createStatement" -> proxy(Statement.class, result, this::statement);
+            case "prepareStatement" -> proxy(PreparedStatement.class, result, this::statement);
+            case "prepareCall" -> proxy(CallableStatement.class, result, this::statement);
+            default -> result;
+        };
+    }
+
+    private Object statement(Object target, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        SqlStats stats = SqlStats.current();
+        if (stats == null) {
+            return invoke(target, method, args);
+        }
+
+        if (name.startsWith("execute")) {
+            // Statement lỗi (vd. vi phạm unique constraint) vẫn là 1 round-trip tới DB
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = invoke(target, method, args);
+            } finally {
+                stats.statement(System.nanoTime() - start, affectedRows(result));
+            }
+            return result instanceof ResultSet rs ? proxy(ResultSet.class, rs, this::resultSet) : result;
+        }
+        if (name.equals("getResultSet")) {
+            Object result = invoke(target, method, args);
+            return result == null ? null : proxy(ResultSet.class, result, this::resultSet);
+        }
+        return invoke(target, method, args);
+    }
+
+    private Object resultSet(Object target, Method method, Object[] args) throws Throwable {
+        SqlStats stats = SqlStats.current();
+        if (stats == null || !method.getName().equals("next")) {
+            return invoke(target, method, args);
+        }
+        long start = System.nanoTime();
+        Object result = invoke(target, method, args);
+        stats.fetch(System.nanoTime() - start, Boolean.TRUE.equals(result));
+        return result;
+    }
+
+    // executeUpdate/executeLargeUpdate: số dòng; executeBatch: tổng các update count
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer count) return count;
+        if (result instanceof Long count) return count;
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int c : counts) total += Math.max(c, 0);
+        } else if (result instanceof long[] counts) {
+            for (long c : counts) total += Math.max(c, 0);
+        }
+        return total;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        if (target == null) return null;
+        InvocationHandler invocationHandler = (p, method, args) -> switch (method.getName()) {
+            // Định danh theo proxy, không theo đối tượng bên dưới (pool/Hibernate so sánh connection)
+            case "equals" -> p == args[0];
+            case "hashCode" -> System.identityHashCode(p);
+            default -> handler.handle(target, method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.usermodule.config.sso;
+
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * HTTP tới provider SSO (token exchange, user-info, JWKS) qua 1 java.net.http.HttpClient dùng chung:
+ * giữ kết nối (keep-alive, HTTP/2 khi provider hỗ trợ), có connect/read timeout.
+ * Mặc định của Spring Security là RestTemplate mới cho mỗi client, không timeout
+ */
+@Configuration
+public class SsoClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public HttpClient ssoHttpClient(SsoClientProperties properties) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory ssoRequestFactory(HttpClient ssoHttpClient, SsoClientProperties properties) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(ssoHttpClient);
+        factory.setReadTimeout(Duration.ofMillis(properties.getReadTimeoutMs()));
+        return factory;
+    }
+
+    // JWKS (SsoIdTokenDecoderFactory)
+    @Bean
+    public RestOperations ssoRestOperations(ClientHttpRequestFactory ssoRequestFactory) {
+        return new RestTemplate(ssoRequestFactory);
+    }
+
+    // Đổi authorization code lấy token, converter + error handler giống mặc định của Spring Security
+    @Bean
+    public OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> ssoAccessTokenResponseClient(
+            ClientHttpRequestFactory ssoRequestFactory) {
+        RestTemplate restTemplate = new RestTemplate(List.of(
+                new FormHttpMessageConverter(), new OAuth2AccessTokenResponseHttpMessageConverter()));
+        restTemplate.setRequestFactory(ssoRequestFactory);
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+
+        DefaultAuthorizationCodeTokenResponseClient client = new DefaultAuthorizationCodeTokenResponseClient();
+        client.setRestOperations(restTemplate);
+        return client;
+    }
+
+    // User-info (Facebook, và Google khi ID token thiếu claim)
+    @Bean
+    public DefaultOAuth2UserService ssoOAuth2UserService(ClientHttpRequestFactory ssoRequestFactory) {
+        RestTemplate restTemplate = new RestTemplate(ssoRequestFactory);
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+
+        DefaultOAuth2UserService service = new DefaultOAuth2UserService();
+        service.setRestOperations(restTemplate);
+        return service;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.usermodule.controller;
 
+import com.example.usermodule.config.sql.SqlBudget;
 import com.example.usermodule.data.entity.User;
 import com.example.usermodule.data.request.AuthRequest;
 import com.example.usermodule.data.request.RegisterRequest;
@@ -8,10 +9,14 @@ import com.example.usermodule.data.response.ApiResponse;
 import com.example.usermodule.data.response.AuthResponse;
 import com.example.usermodule.repository.UserRepository;
 import com.example.usermodule.service.AuthService;
+import com.example.usermodule.service.PasswordHashingService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -24,38 +29,50 @@ public class AuthController {
 
     private final AuthService authService;
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
 
-    // REGISTER
+    private static final String USERNAME_CONSTRAINT = "ux_users_username";
+
+    // REGISTER (1 INSERT, trùng do unique constraint báo)
+    // Budget đo trên Postgres thật: AuthControllerSqlBudgetPostgresTest
     @PostMapping("/register")
+    @SqlBudget(statements = 1)
     public ResponseEntity<ApiResponse<Void>> register(@RequestBody RegisterRequest request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
-            return ResponseEntity.ok(new ApiResponse<>(false, "Username already exists", null));
-        }
-
         User user = new User();
         user.setUid(UUID.randomUUID());
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
         user.setPhone(request.getPhone());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        user.setPasswordHash(passwordHashingService.encode(request.getPassword()));
         user.setActive((short) 1);
         user.setFailedAttempts(0);
         user.setCreatedAt(LocalDateTime.now());
 
-        userRepository.save(user);
+        // Unique constraint (ux_users_username) quyết định trùng, không query trước;
+        // vi phạm constraint khác (NOT NULL, ...) không phải trùng username -> ném tiếp
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!violates(e, USERNAME_CONSTRAINT)) throw e;
+            return ResponseEntity.ok(new ApiResponse<>(false, "Username already exists", null));
+        }
         return ResponseEntity.ok(new ApiResponse<>(true, "User registered successfully!", null));
     }
 
-    // LOGIN
+    // LOGIN: user, [rehash], revoke token cũ, user detail, lưu refresh token.
+    // getRemoteAddr() là IP client thật khi server.forward-headers-strategy bật (sau proxy tin cậy)
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@RequestBody AuthRequest request) {
-        AuthResponse authResponse = authService.login(request.getUsername(), request.getPassword());
+    @SqlBudget(statements = 5)
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@RequestBody AuthRequest request,
+                                                           HttpServletRequest httpRequest) {
+        AuthResponse authResponse = authService.login(
+                request.getUsername(), request.getPassword(), httpRequest.getRemoteAddr());
         return ResponseEntity.ok(new ApiResponse<>(true, "Login successful", authResponse));
     }
 
-    // REFRESH TOKEN
+    // REFRESH TOKEN: token theo digest, user, user detail
     @PostMapping("/refresh")
+    @SqlBudget(statements = 3)
     public ResponseEntity<ApiResponse<AuthResponse>> refresh(@RequestBody RefreshRequest request) {
         AuthResponse authResponse = authService.refreshToken(request.getRefreshToken());
         return ResponseEntity.ok(new ApiResponse<>(true, "Token refreshed successfully", authResponse));
@@ -63,8 +80,10 @@ public class AuthController {
 
     // LOGOUT
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody RefreshRequest request) {
-        authService.logout(request.getRefreshToken());
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody RefreshRequest request,
+                                                    @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.logout(request.getRefreshToken(), accessToken);
         return ResponseEntity.ok(new ApiResponse<>(true, "Logged out successfully!", null));
     }
 
@@ -86,4 +105,13 @@ public class AuthController {
         authService.changePassword(username, oldPassword, newPassword);
         return ResponseEntity.ok(new ApiResponse<>(true, "Password changed successfully. Please login again.", null));
     }
+
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve) {
+                return constraint.equalsIgnoreCase(cve.getConstraintName());
+            }
+        }
+        return false;
+    }
 }
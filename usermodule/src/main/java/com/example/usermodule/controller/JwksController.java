@@ -0,0 +1,31 @@
+package com.example.usermodule.controller;
+
+import com.example.usermodule.service.JwtKeyManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyManager jwtKeyManager;
+
+    // Public key ES256 để module khác verify token tại chỗ; JSON dựng sẵn, client cache theo max-age/ETag
+    @GetMapping(value = "/api/auth/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = jwtKeyManager.jwksETag();
+        CacheControl cacheControl = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).eTag(etag).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).eTag(etag).body(jwtKeyManager.jwksJson());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.usermodule.controller;
+
+import com.example.usermodule.config.SecurityConfig;
+import com.example.usermodule.service.JfrRecordingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+// File .jfr chứa stack trace, SQL, thời gian repository: chỉ admin
+@RestController
+@RequestMapping("/admin/jfr")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('" + SecurityConfig.ADMIN_ROLE + "')")
+public class ProfilingAdminController {
+
+    private final JfrRecordingService jfrRecordingService;
+
+    // Trạng thái recording gần nhất
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(jfrRecordingService.status());
+    }
+
+    // Bắt đầu recording, giới hạn bởi app.jfr.max-duration-seconds / app.jfr.max-size-mb
+    @PostMapping("/start")
+    public ResponseEntity<Map<String, Object>> start(
+            @RequestParam(required = false) Integer durationSeconds,
+            @RequestParam(required = false) Integer maxSizeMb
+    ) {
+        return ResponseEntity.ok(jfrRecordingService.start(durationSeconds, maxSizeMb));
+    }
+
+    // Dừng recording và tải file .jfr về (mở bằng JDK Mission Control / `jfr print`)
+    @PostMapping("/stop")
+    public ResponseEntity<Resource> stop() {
+        return download(jfrRecordingService.stop());
+    }
+
+    // Tải lại file của recording đã dừng (vd. tự dừng khi hết duration)
+    @GetMapping("/recording")
+    public ResponseEntity<Resource> recording() {
+        return download(jfrRecordingService.lastRecording());
+    }
+
+    private static ResponseEntity<Resource> download(Path file) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .body(new FileSystemResource(file));
+    }
+}
@@ -1,20 +1,61 @@
 package com.example.usermodule.controller;
 
+import com.example.usermodule.config.SecurityConfig;
+import com.example.usermodule.data.response.BulkAssignmentResult;
+import com.example.usermodule.service.BulkRegistrationService;
+import com.example.usermodule.service.RbacBulkAssignmentService;
 import com.example.usermodule.service.RolePermissionService;
 import com.example.usermodule.service.UserRoleService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
+// Ngoài adminFilterChain, kiểm tra lại ở method: endpoint ghi RBAC / tạo user hàng loạt không được lộ qua chain khác
 @RestController
 @RequestMapping("/admin")
 @RequiredArgsConstructor
+@PreAuthorize("hasRole('" + SecurityConfig.ADMIN_ROLE + "')")
 public class UserAdminController {
 
     private final UserRoleService userRoleService;
     private final RolePermissionService rolePermissionService;
+    private final BulkRegistrationService bulkRegistrationService;
+    private final RbacBulkAssignmentService rbacBulkAssignmentService;
+
+    // Đồng bộ role cho nhiều user: { userId: [roleId, ...] }, chỉ ghi phần thay đổi
+    @PutMapping("/users/roles")
+    public ResponseEntity<BulkAssignmentResult> syncUserRoles(@RequestBody Map<Long, List<Long>> assignments) {
+        return ResponseEntity.ok(rbacBulkAssignmentService.syncUserRoles(assignments));
+    }
+
+    // Đồng bộ permission cho nhiều role: { roleId: [permissionId, ...] }
+    @PutMapping("/roles/permissions")
+    public ResponseEntity<BulkAssignmentResult> syncRolePermissions(@RequestBody Map<Long, List<Long>> assignments) {
+        return ResponseEntity.ok(rbacBulkAssignmentService.syncRolePermissions(assignments));
+    }
+
+    // Đăng ký hàng loạt (CSV có header hoặc NDJSON), trả kết quả từng dòng dạng NDJSON
+    @PostMapping(value = "/users/bulk",
+            consumes = {"text/csv", "application/x-ndjson"},
+            produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> bulkRegister(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        StreamingResponseBody stream = out -> bulkRegistrationService.register(body, csv, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(stream);
+    }
 
     // Gán role cho user
     @PostMapping("/users/{userId}/roles")
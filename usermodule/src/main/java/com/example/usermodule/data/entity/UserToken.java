@@ -5,7 +5,8 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_tokens")
+@Table(name = "user_tokens",
+        indexes = @Index(name = "ux_user_tokens_token_hash", columnList = "token_hash", unique = true))
 @Data
 public class UserToken {
     @Id
@@ -15,8 +16,9 @@ public class UserToken {
     @Column(name = "user_id")
     private Long userId;
 
-    @Column(name = "refresh_token")
-    private String refreshToken;
+    // SHA-256 của refresh token (32 bytes), không lưu token gốc
+    @Column(name = "token_hash", columnDefinition = "bytea")
+    private byte[] tokenHash;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -0,0 +1,19 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "auth.bulk")
+public class BulkRegistrationProperties {
+    // Số dòng mỗi batch (hash song song rồi 1 JDBC batch insert)
+    private int batchSize = 500;
+
+    // Số thread bcrypt cho import (0 = nửa số core, chừa CPU cho login)
+    private int hashThreads = 0;
+
+    private int maxUsernameLength = 100;
+    private int minPasswordLength = 6;
+}
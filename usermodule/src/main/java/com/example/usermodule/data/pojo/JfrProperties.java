@@ -0,0 +1,32 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.jfr")
+public class JfrProperties {
+    // Event JFR cho repository (các event auth/SSO luôn có, chỉ tốn khi có recording)
+    private boolean enabled = true;
+
+    // Cấu hình JFR của JDK: default (~1% overhead) hoặc profile (nhiều sample hơn)
+    private String settings = "default";
+
+    // Chỉ ghi event của module dài hơn ngưỡng này (0 = ghi tất cả)
+    private long eventThresholdMs = 0;
+
+    // Giới hạn mỗi recording: tự dừng sau duration, giữ tối đa maxSize (bỏ dữ liệu cũ nhất)
+    private int defaultDurationSeconds = 60;
+    private int maxDurationSeconds = 600;
+    private int defaultMaxSizeMb = 64;
+    private int maxSizeMb = 256;
+
+    // Thư mục ghi file .jfr (trống = java.io.tmpdir)
+    private String directory;
+
+    // Key HMAC cho username hash trong event (trống = key ngẫu nhiên mỗi lần khởi động,
+    // hash chỉ so sánh được trong cùng 1 process)
+    private String usernameHashKey;
+}
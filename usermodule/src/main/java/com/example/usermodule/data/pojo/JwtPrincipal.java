@@ -0,0 +1,29 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Principal dựng từ claims đã verify của access token (chế độ stateless).
+ * Không chứa password hash; cần entity User thì gọi UserService.resolveUser
+ */
+@Value
+public class JwtPrincipal implements Principal, Serializable {
+    String username;
+    UUID uid;
+    List<String> roles;
+    List<String> permissions;
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public static JwtPrincipal from(VerifiedToken token) {
+        return new JwtPrincipal(token.getSubject(), token.getUid(), token.getRoles(), token.getPermissions());
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Instant;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "jwt")
@@ -11,4 +13,40 @@ public class JwtProperties {
     private String secret;
     private long expiration;
     private long refreshExpiration;
-}
\ No newline at end of file
+
+    // HS256: ký bằng secret (mặc định cũ); ES256: ký bằng khoá EC có kid, công bố qua JWKS
+    private String algorithm = "HS256";
+
+    // ES256: token HS256 cũ (không có kid) chỉ còn được verify tới thời điểm này.
+    // null = lúc khởi động + expiration (access token HS256 phát trước khi nâng cấp dùng hết hạn);
+    // đặt mốc đã qua để từ chối ngay
+    private Instant legacyHs256Until;
+
+    // true: dựng principal chỉ từ claims của token, không truy vấn users mỗi request
+    private boolean stateless;
+
+    // true: permission trong access token là bitmap theo PermissionRegistry thay vì mảng chuỗi.
+    // Chỉ bật khi mọi bên verify token đều giải mã được bitmap (jobmodule đọc claim permissions)
+    private boolean permissionBitmap;
+
+    // Cache token đã verify (key = digest của token)
+    private Cache cache = new Cache();
+
+    // Xoay vòng khoá ký ES256
+    private Keys keys = new Keys();
+
+    @Data
+    public static class Keys {
+        // Chu kỳ tạo khoá mới
+        private long rotationHours = 168;
+        // Khoá mới có trong JWKS bao lâu trước khi bắt đầu ký (>= thời gian cache JWKS ở phía verify)
+        private long publishDelayMinutes = 10;
+        private long refreshMs = 60_000;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maxSize = 10_000;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "auth.throttle")
+public class LoginThrottleProperties {
+    // Theo username: giới hạn là auth.maxFailedAttempts trong cửa sổ này
+    private long userWindowSeconds = 900;
+
+    // Theo IP: chặn credential stuffing (nhiều username từ 1 IP)
+    private long ipWindowSeconds = 300;
+    private int ipMaxFailures = 30;
+
+    // Số stripe và số key tối đa mỗi stripe (chống phình bộ nhớ khi bị rải IP)
+    private int stripes = 16;
+    private int maxKeysPerStripe = 65_536;
+}
@@ -0,0 +1,24 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "auth.hashing")
+public class PasswordHashingProperties {
+    // Số thread bcrypt (0 = số core)
+    private int threads = 0;
+
+    // Số việc chờ tối đa, vượt quá thì trả 503 ngay
+    private int queueCapacity = 64;
+
+    // Thời gian tối đa request chờ kết quả hash
+    private long waitTimeoutMs = 5_000;
+
+    // Cost bcrypt được chọn lúc startup sao cho 1 lần hash gần targetMillis
+    private long targetMillis = 100;
+    private int minStrength = 10;
+    private int maxStrength = 14;
+}
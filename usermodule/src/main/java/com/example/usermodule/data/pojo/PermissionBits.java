@@ -0,0 +1,52 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tập permission dạng bitset theo 1 PermissionCatalog.
+ * Là GrantedAuthority "phức hợp": kiểm tra bằng has(code), getAuthority() chỉ là nhãn AUTHORITY
+ * (không trùng mã permission nào) để code so chuỗi / serialize authorities không gặp null
+ */
+public final class PermissionBits implements GrantedAuthority {
+
+    public static final String AUTHORITY = "PERMISSION_BITS";
+
+    @Getter
+    private final PermissionCatalog catalog;
+    private final long[] words;
+
+    PermissionBits(PermissionCatalog catalog, long[] words) {
+        this.catalog = catalog;
+        this.words = words;
+    }
+
+    public boolean has(String code) {
+        int ordinal = catalog.ordinal(code);
+        if (ordinal < 0) return false;
+        int word = ordinal >>> 6;
+        return word < words.length && (words[word] & (1L << ordinal)) != 0;
+    }
+
+    public List<String> codes() {
+        List<String> codes = new ArrayList<>();
+        BitSet bits = BitSet.valueOf(words);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            codes.add(catalog.getCodes().get(i));
+        }
+        return List.copyOf(codes);
+    }
+
+    public byte[] toByteArray() {
+        return BitSet.valueOf(words).toByteArray();
+    }
+
+    @Override
+    public String getAuthority() {
+        return AUTHORITY;
+    }
+}
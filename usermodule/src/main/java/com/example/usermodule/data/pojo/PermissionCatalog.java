@@ -0,0 +1,57 @@
+package com.example.usermodule.data.pojo;
+
+import com.example.usermodule.util.TokenDigest;
+import lombok.Getter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng ordinal của permission (thứ tự theo id) kèm version = digest của danh sách code.
+ * Cùng dữ liệu bảng permissions thì mọi node ra cùng version, không cần điều phối
+ */
+@Getter
+public final class PermissionCatalog {
+
+    public static final PermissionCatalog EMPTY = new PermissionCatalog(List.of());
+
+    private final String version;
+    private final List<String> codes;
+    private final Map<String, Integer> ordinals;
+
+    public PermissionCatalog(List<String> codes) {
+        this.codes = List.copyOf(codes);
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < codes.size(); i++) {
+            ordinals.put(codes.get(i), i);
+        }
+        this.ordinals = Map.copyOf(ordinals);
+        this.version = TokenDigest.toHex(TokenDigest.sha256(String.join("\n", codes))).substring(0, 12);
+    }
+
+    public int ordinal(String code) {
+        Integer ordinal = ordinals.get(code);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    // null nếu có permission không nằm trong catalog (token phải dùng dạng chuỗi)
+    public PermissionBits encode(Collection<String> permissions) {
+        BitSet bits = new BitSet(codes.size());
+        for (String code : permissions) {
+            int ordinal = ordinal(code);
+            if (ordinal < 0) return null;
+            bits.set(ordinal);
+        }
+        return new PermissionBits(this, bits.toLongArray());
+    }
+
+    // null nếu bitmap có bit nằm ngoài catalog
+    public PermissionBits decode(byte[] bitmap) {
+        BitSet bits = BitSet.valueOf(bitmap);
+        if (bits.length() > codes.size()) return null;
+        return new PermissionBits(this, bits.toLongArray());
+    }
+}
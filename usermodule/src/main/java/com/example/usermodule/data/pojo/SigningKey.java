@@ -0,0 +1,15 @@
+package com.example.usermodule.data.pojo;
+
+import java.security.PrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.time.Instant;
+
+/**
+ * Khoá ký ES256 (P-256). privateKey chỉ dùng để ký, publicKey được công bố qua JWKS
+ */
+public record SigningKey(String kid,
+                         PrivateKey privateKey,
+                         ECPublicKey publicKey,
+                         Instant activatesAt,
+                         Instant expiresAt) {
+}
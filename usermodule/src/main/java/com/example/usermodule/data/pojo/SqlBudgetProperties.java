@@ -0,0 +1,17 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.sql-budget")
+public class SqlBudgetProperties {
+    // Đếm JDBC statement/rows/thời gian theo request (StatementCountingDataSource + SqlBudgetFilter).
+    // Tắt mặc định vì bọc mọi statement bằng Proxy; bật ở dev / test
+    private boolean enabled;
+
+    // true: request vượt @SqlBudget ném SqlBudgetExceededException (dùng trong test, không bật ở prod)
+    private boolean enforce = false;
+}
@@ -0,0 +1,24 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "sso.client")
+public class SsoClientProperties {
+    // HTTP tới provider (token exchange, user-info, JWKS): 1 HttpClient dùng chung, giữ kết nối
+    private long connectTimeoutMs = 2_000;
+    private long readTimeoutMs = 5_000;
+
+    // JWKS của provider: quá refresh thì vẫn dùng bản cũ và nạp lại nền (stale-while-revalidate),
+    // quá max-stale thì bắt buộc nạp lại trước khi verify
+    private long jwksRefreshMinutes = 60;
+    private long jwksMaxStaleHours = 24;
+    // kid lạ chỉ kích hoạt nạp lại tối đa 1 lần trong khoảng này
+    private long jwksMinReloadMs = 5_000;
+
+    // Bỏ qua user-info (OIDC) khi ID token đã có email + name + picture
+    private boolean skipUserInfoWhenIdTokenComplete = true;
+}
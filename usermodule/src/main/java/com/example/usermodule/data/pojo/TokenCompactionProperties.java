@@ -0,0 +1,27 @@
+package com.example.usermodule.data.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "token.compaction")
+public class TokenCompactionProperties {
+    private boolean enabled = true;
+
+    // Chu kỳ chạy job (ms)
+    private long intervalMs = 3_600_000;
+
+    // Giữ lại token đã revoke/hết hạn thêm bao lâu trước khi xoá
+    private int retentionHours = 24;
+
+    // Số dòng xoá mỗi batch, nghỉ giữa các batch để không chiếm IO của request
+    private int batchSize = 5_000;
+    private long pauseMs = 200;
+    private int maxBatchesPerRun = 500;
+
+    // user_tokens đã chuyển sang partition theo tháng trên expires_at (db/user_tokens_partitioning.sql)
+    private boolean partitioned = false;
+    private int partitionsAhead = 3;
+}
@@ -0,0 +1,7 @@
+package com.example.usermodule.data.pojo;
+
+/**
+ * Access + refresh token phát cùng lúc (login, refresh, SSO)
+ */
+public record TokenPair(String accessToken, String refreshToken) {
+}
@@ -0,0 +1,15 @@
+package com.example.usermodule.data.pojo;
+
+/**
+ * Projection user + profile + roles + permissions trong 1 statement
+ * (native query UserRepository.findUserDetail, roles/permissions gom bằng ARRAY(...))
+ */
+public interface UserDetailView extends UserProfileView {
+    // roleIds, roles, rolePermissions cùng thứ tự (ORDER BY r.id)
+    Long[] getRoleIds();
+    String[] getRoles();
+    // Từng cặp (permissionRoleIds[i], permissionCodes[i]) = role -> 1 permission code;
+    // role không có permission thì không có cặp nào
+    Long[] getPermissionRoleIds();
+    String[] getPermissionCodes();
+}
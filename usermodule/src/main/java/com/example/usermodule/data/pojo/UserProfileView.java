@@ -0,0 +1,16 @@
+package com.example.usermodule.data.pojo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection user + profile (native query UserRepository.findUserWithProfile)
+ */
+public interface UserProfileView {
+    Long getId();
+    String getUsername();
+    String getEmail();
+    String getPhone();
+    LocalDateTime getLastLogin();
+    String getName();
+    String getAvatar();
+}
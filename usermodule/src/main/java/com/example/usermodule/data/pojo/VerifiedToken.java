@@ -0,0 +1,62 @@
+package com.example.usermodule.data.pojo;
+
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kết quả verify access token (chữ ký + hạn dùng + subject) trong 1 lần parse.
+ * Bất biến, dùng lại được cho cả filter lẫn cache
+ */
+@Value
+public class VerifiedToken {
+    // Claim jti, null với token phát trước khi có denylist
+    UUID jti;
+    String subject;
+    UUID uid;
+    List<String> roles;
+    List<String> permissions;
+
+    // Bitmap permission đã giải mã (null nếu token dùng dạng chuỗi hoặc không rõ version)
+    PermissionBits permissionBits;
+
+    // false: token có bitmap nhưng version catalog không còn, permissions cần nạp lại từ DB
+    boolean permissionsResolved;
+
+    Instant issuedAt;
+    Instant expiresAt;
+
+    // Header kid: khoá ES256 đã ký, null = token HS256
+    String keyId;
+
+    /**
+     * bits: bitmap đã giải mã theo catalog của token, null nếu token không có bitmap hoặc không giải mã được
+     */
+    @SuppressWarnings("unchecked")
+    public static VerifiedToken from(Claims claims, String keyId, PermissionBits bits, boolean hasBitmap) {
+        String jti = claims.getId();
+        String uid = claims.get("uid", String.class);
+        List<String> roles = claims.get("roles", List.class);
+        List<String> perms = bits != null ? bits.codes() : claims.get("permissions", List.class);
+        return new VerifiedToken(
+                jti != null ? UUID.fromString(jti) : null,
+                claims.getSubject(),
+                uid != null ? UUID.fromString(uid) : null,
+                roles != null ? List.copyOf(roles) : List.of(),
+                perms != null ? List.copyOf(perms) : List.of(),
+                bits,
+                bits != null || !hasBitmap,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                keyId
+        );
+    }
+
+    // Thay permissions nạp lại (fallback khi version bitmap không khớp)
+    public VerifiedToken withPermissions(List<String> permissions, PermissionBits bits) {
+        return new VerifiedToken(jti, subject, uid, roles, List.copyOf(permissions), bits, true, issuedAt, expiresAt, keyId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.usermodule.data.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkAssignmentResult {
+    private int owners;          // số user / role trong request
+    private int changedOwners;   // số user / role có thay đổi (bị evict cache)
+    private int added;
+    private int removed;
+    private int unchanged;
+
+    // Thời gian từng pha (ms)
+    private long loadMillis;
+    private long diffMillis;
+    private long writeMillis;
+    private long totalMillis;
+}
@@ -0,0 +1,17 @@
+package com.example.usermodule.data.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkRegisterResult {
+    public enum Status { CREATED, DUPLICATE, INVALID, FAILED }
+
+    private long row;
+    private String username;
+    private Status status;
+    private String message;
+}
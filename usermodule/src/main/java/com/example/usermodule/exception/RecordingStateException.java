@@ -0,0 +1,7 @@
+package com.example.usermodule.exception;
+
+public class RecordingStateException extends RuntimeException {
+    public RecordingStateException(String message) {
+        super(message);
+    }
+}
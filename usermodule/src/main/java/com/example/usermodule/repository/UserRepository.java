@@ -1,13 +1,16 @@
 package com.example.usermodule.repository;
 
 import com.example.usermodule.data.entity.User;
+import com.example.usermodule.data.pojo.UserDetailView;
+import com.example.usermodule.data.pojo.UserProfileView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -24,15 +27,40 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     /**
      * Lấy user cơ bản + profile name/avatar theo userId
-     * Trả về Object[] để map thủ công vào UserDTO
      */
     @Query(value = """
-        SELECT u.id, u.username, u.email, u.phone, u.last_login, p.name, p.avatar
+        SELECT u.id AS "id", u.username AS "username", u.email AS "email", u.phone AS "phone",
+               u.last_login AS "lastLogin", p.name AS "name", p.avatar AS "avatar"
         FROM users u
         LEFT JOIN user_profiles p ON u.id = p.user_id
         WHERE u.id = :userId
         """, nativeQuery = true)
-    Object findUserWithProfile(Long userId);
+    Optional<UserProfileView> findUserWithProfile(@Param("userId") Long userId);
+
+    /**
+     * Lấy user + profile + roles + permissions theo từng role trong 1 round-trip
+     * (đủ để nạp cả 2 tầng RbacCache: user -> roles và role -> permissions)
+     */
+    @Query(value = """
+        SELECT u.id AS "id", u.username AS "username", u.email AS "email", u.phone AS "phone",
+               u.last_login AS "lastLogin", p.name AS "name", p.avatar AS "avatar",
+               ARRAY(SELECT r.id FROM user_roles ur JOIN roles r ON r.id = ur.role_id
+                     WHERE ur.user_id = u.id ORDER BY r.id) AS "roleIds",
+               ARRAY(SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id
+                     WHERE ur.user_id = u.id ORDER BY r.id) AS "roles",
+               ARRAY(SELECT rp.role_id FROM user_roles ur
+                     JOIN role_permissions rp ON rp.role_id = ur.role_id
+                     JOIN permissions pm ON pm.id = rp.permission_id
+                     WHERE ur.user_id = u.id ORDER BY rp.role_id, pm.code) AS "permissionRoleIds",
+               ARRAY(SELECT pm.code::text FROM user_roles ur
+                     JOIN role_permissions rp ON rp.role_id = ur.role_id
+                     JOIN permissions pm ON pm.id = rp.permission_id
+                     WHERE ur.user_id = u.id ORDER BY rp.role_id, pm.code) AS "permissionCodes"
+        FROM users u
+        LEFT JOIN user_profiles p ON u.id = p.user_id
+        WHERE u.id = :userId
+        """, nativeQuery = true)
+    Optional<UserDetailView> findUserDetail(@Param("userId") Long userId);
 
     @Modifying
     @Transactional
@@ -46,8 +74,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Modifying
     @Transactional
-    @Query("UPDATE User u SET u.lockedUntil = :lockTime WHERE u.id = :userId")
-    void lockUser(Long userId, Instant lockTime);
+    @Query("UPDATE User u SET u.lockedUntil = :lockTime, u.failedAttempts = 0 WHERE u.id = :userId")
+    void lockUser(Long userId, LocalDateTime lockTime);
+
+    // Rehash khi login: chỉ ghi cột password_hash (entity đọc ngoài transaction, không merge cả dòng)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.id = :userId")
+    void updatePasswordHash(Long userId, String passwordHash);
 }
 
 
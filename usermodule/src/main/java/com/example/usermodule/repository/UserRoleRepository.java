@@ -1,5 +1,6 @@
 package com.example.usermodule.repository;
 
+import com.example.usermodule.data.entity.Role;
 import com.example.usermodule.data.entity.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Set;
 
 @Repository
@@ -17,6 +19,10 @@ public interface UserRoleRepository extends JpaRepository<UserRole, Long> {
     @Query("SELECT r.name FROM UserRole ur JOIN Role r ON ur.roleId = r.id WHERE ur.userId = :userId")
     Set<String> findRolesByUserId(@Param("userId") Long userId);
 
+    // Lấy role (id + name) của user, dùng cho RbacCache
+    @Query("SELECT r FROM UserRole ur JOIN Role r ON ur.roleId = r.id WHERE ur.userId = :userId")
+    List<Role> findRoleEntitiesByUserId(@Param("userId") Long userId);
+
     // Lấy tất cả permission của user
     @Query("SELECT p.code FROM UserRole ur JOIN RolePermission rp ON ur.roleId = rp.roleId JOIN Permission p ON rp.permissionId = p.id WHERE ur.userId = :userId")
     Set<String> findPermissionsByUserId(@Param("userId") Long userId);
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +19,26 @@ public interface UserTokenRepository extends JpaRepository<UserToken, Long> {
     @Query("SELECT t FROM UserToken t WHERE t.userId = :userId AND t.revoked = false AND t.expiresAt > CURRENT_TIMESTAMP")
     List<UserToken> findActiveTokensByUserId(@Param("userId") Long userId);
 
-    Optional<UserToken> findByRefreshTokenAndRevokedFalse(String refreshToken);
+    // Tra cứu theo digest (unique index ux_user_tokens_token_hash)
+    Optional<UserToken> findByTokenHashAndRevokedFalse(byte[] tokenHash);
 
     // Revoke tất cả token
     @Modifying
     @Transactional
     @Query("UPDATE UserToken t SET t.revoked = true WHERE t.userId = :userId AND t.revoked = false")
     void revokeAllTokensByUserId(@Param("userId") Long userId);
+
+    // Xoá 1 batch token đã hết hạn hoặc đã revoke trước cutoff; SKIP LOCKED để nhiều node chạy song song
+    @Modifying
+    @Transactional
+    @Query(value = """
+        DELETE FROM user_tokens
+        WHERE id IN (
+            SELECT id FROM user_tokens
+            WHERE expires_at < :cutoff OR (revoked = true AND created_at < :cutoff)
+            LIMIT :batchSize
+            FOR UPDATE SKIP LOCKED
+        )
+        """, nativeQuery = true)
+    int deleteCompactableBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 }
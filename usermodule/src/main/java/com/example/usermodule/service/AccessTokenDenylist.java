@@ -0,0 +1,219 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.VerifiedToken;
+import com.example.usermodule.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thu hồi access token trước hạn: theo jti (logout 1 thiết bị) và theo mốc not-before của user
+ * (logout-all, đổi mật khẩu). Dữ liệu lưu DB, bản trong bộ nhớ được Bloom filter đứng trước
+ * nên request bình thường (không bị thu hồi) chỉ tốn vài lần đọc bit.
+ * Dựng lại khi khởi động, đồng bộ định kỳ giữa các node, tự dọn khi token hết hạn
+ */
+@Slf4j
+@Service
+public class AccessTokenDenylist {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Đọc chồng lên lần sync trước để không sót dòng do lệch giờ giữa các node
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtProperties jwtProperties;
+    private final int minCapacity;
+
+    // jti -> exp (epoch ms)
+    private final Map<UUID, Long> revokedJtis = new ConcurrentHashMap<>();
+    // username -> not-before (epoch giây), token có iat nhỏ hơn bị từ chối
+    private final Map<String, Long> notBefore = new ConcurrentHashMap<>();
+    // username -> hạn xoá mốc not-before (epoch ms)
+    private final Map<String, Long> notBeforeExpiry = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    private final Counter rejected;
+
+    public AccessTokenDenylist(JdbcTemplate jdbcTemplate,
+                               JwtProperties jwtProperties,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.denylist.min-capacity:10000}") int minCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jwtProperties = jwtProperties;
+        this.minCapacity = minCapacity;
+        this.filter = new BloomFilter(minCapacity, FALSE_POSITIVE_RATE);
+
+        this.rejected = Counter.builder("jwt.denylist.rejected")
+                .description("Access tokens rejected because they were revoked")
+                .register(meterRegistry);
+        Gauge.builder("jwt.denylist.size", this, d -> d.revokedJtis.size() + d.notBefore.size())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.warn("Access token denylist rebuild failed: {}", e.getMessage());
+        }
+        rebuildFilter();
+        log.info("Access token denylist loaded: {} jti, {} users", revokedJtis.size(), notBefore.size());
+    }
+
+    /**
+     * true nếu token đã bị thu hồi (theo jti hoặc theo mốc not-before của user)
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        BloomFilter current = filter;
+
+        UUID jti = token.getJti();
+        if (jti != null && current.mightContain(hash(jti)) && revokedJtis.containsKey(jti)) {
+            rejected.increment();
+            return true;
+        }
+
+        String username = token.getSubject();
+        if (current.mightContain(hash(username))) {
+            Long nb = notBefore.get(username);
+            if (nb != null && (token.getIssuedAt() == null || token.getIssuedAt().getEpochSecond() < nb)) {
+                rejected.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Logout 1 thiết bị: thu hồi đúng access token đang dùng
+    public void revoke(VerifiedToken token) {
+        if (token.getJti() == null || token.getExpiresAt() == null) return;
+
+        jdbcTemplate.update(
+                "INSERT INTO revoked_access_tokens (jti, expires_at, revoked_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                token.getJti(), Timestamp.from(token.getExpiresAt()), Timestamp.from(Instant.now()));
+        afterCommit(() -> addJti(token.getJti(), token.getExpiresAt().toEpochMilli()));
+    }
+
+    // Logout-all / đổi mật khẩu: mọi access token phát trước thời điểm này bị từ chối
+    public void revokeAllForUser(Long userId) {
+        // JWT iat chỉ tới giây: token phát cùng giây với mốc vẫn hợp lệ
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant expiresAt = now.plusMillis(jwtProperties.getExpiration());
+
+        String username = jdbcTemplate.queryForObject(
+                "INSERT INTO access_token_not_before (user_id, not_before, expires_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (user_id) DO UPDATE SET not_before = EXCLUDED.not_before, expires_at = EXCLUDED.expires_at " +
+                "RETURNING (SELECT username FROM users WHERE id = ?)",
+                String.class, userId, Timestamp.from(now), Timestamp.from(expiresAt), userId);
+        if (username != null) {
+            afterCommit(() -> addNotBefore(username, now.getEpochSecond(), expiresAt.toEpochMilli()));
+        }
+    }
+
+    // Đồng bộ các dòng mới từ node khác
+    @Scheduled(fixedDelayString = "${jwt.denylist.sync-ms:5000}")
+    public void sync() {
+        Instant since = lastSync.minusSeconds(SYNC_OVERLAP_SECONDS);
+        Instant startedAt = Instant.now();
+
+        jdbcTemplate.query(
+                "SELECT jti, expires_at FROM revoked_access_tokens WHERE revoked_at >= ? AND expires_at > now()",
+                rs -> {
+                    addJti(rs.getObject(1, UUID.class), rs.getTimestamp(2).getTime());
+                }, Timestamp.from(since));
+
+        jdbcTemplate.query(
+                "SELECT u.username, n.not_before, n.expires_at FROM access_token_not_before n " +
+                "JOIN users u ON u.id = n.user_id WHERE n.not_before >= ? AND n.expires_at > now()",
+                rs -> {
+                    addNotBefore(rs.getString(1), rs.getTimestamp(2).toInstant().getEpochSecond(), rs.getTimestamp(3).getTime());
+                }, Timestamp.from(since));
+
+        lastSync = startedAt;
+    }
+
+    // Bỏ mục đã hết hạn (trong bộ nhớ và DB), dựng lại Bloom filter cho gọn
+    @Scheduled(fixedDelayString = "${jwt.denylist.prune-ms:60000}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        revokedJtis.values().removeIf(exp -> exp <= now);
+        notBeforeExpiry.entrySet().removeIf(e -> {
+            if (e.getValue() > now) return false;
+            notBefore.remove(e.getKey());
+            return true;
+        });
+        rebuildFilter();
+
+        int deleted = jdbcTemplate.update("DELETE FROM revoked_access_tokens WHERE expires_at <= now()")
+                + jdbcTemplate.update("DELETE FROM access_token_not_before WHERE expires_at <= now()");
+        if (deleted > 0) {
+            log.debug("Access token denylist pruned {} rows", deleted);
+        }
+    }
+
+    private void addJti(UUID jti, long expiresAtMillis) {
+        revokedJtis.put(jti, expiresAtMillis);
+        filter.put(hash(jti));
+    }
+
+    private void addNotBefore(String username, long notBeforeSeconds, long expiresAtMillis) {
+        notBefore.merge(username, notBeforeSeconds, Math::max);
+        notBeforeExpiry.merge(username, expiresAtMillis, Math::max);
+        filter.put(hash(username));
+    }
+
+    /**
+     * Filter mới được nạp đủ trước khi thay, rồi nạp lại 1 lần nữa
+     * để không sót mục được thêm trong lúc đang dựng
+     */
+    private void rebuildFilter() {
+        BloomFilter next = new BloomFilter(Math.max(minCapacity, 2 * (revokedJtis.size() + notBefore.size())), FALSE_POSITIVE_RATE);
+        fill(next);
+        filter = next;
+        fill(next);
+    }
+
+    private void fill(BloomFilter target) {
+        revokedJtis.keySet().forEach(jti -> target.put(hash(jti)));
+        notBefore.keySet().forEach(username -> target.put(hash(username)));
+    }
+
+    private static long hash(UUID jti) {
+        return jti.getMostSignificantBits() ^ Long.rotateLeft(jti.getLeastSignificantBits(), 32);
+    }
+
+    private static long hash(String username) {
+        return ((long) username.hashCode() << 32) ^ username.length() ^ 0x5bd1e995L;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.usermodule.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian từng pha của login / refresh / verify request: auth.phase{flow,phase,outcome}
+ * và kết quả cuối của mỗi luồng: auth.outcome{flow,outcome}.
+ * Mọi meter đăng ký sẵn lúc khởi động, hot path chỉ tra mảng theo ordinal (không ghép chuỗi, không cấp phát)
+ */
+@Component
+public class AuthMetrics {
+
+    public enum Flow {
+        LOGIN("login"), REFRESH("refresh"), REQUEST("request");
+
+        final String tag;
+
+        Flow(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Phase {
+        LOGIN_USER_LOOKUP(Flow.LOGIN, "user_lookup"),
+        LOGIN_LOCK_CHECK(Flow.LOGIN, "lock_check"),
+        LOGIN_PASSWORD_VERIFY(Flow.LOGIN, "password_verify"),
+        LOGIN_TOKEN_REVOKE(Flow.LOGIN, "token_revoke"),
+        LOGIN_RBAC_LOAD(Flow.LOGIN, "rbac_load"),
+        LOGIN_TOKEN_SIGN(Flow.LOGIN, "token_sign"),
+        LOGIN_REFRESH_PERSIST(Flow.LOGIN, "refresh_persist"),
+        REFRESH_TOKEN_LOOKUP(Flow.REFRESH, "token_lookup"),
+        REFRESH_USER_LOOKUP(Flow.REFRESH, "user_lookup"),
+        REFRESH_RBAC_LOAD(Flow.REFRESH, "rbac_load"),
+        REFRESH_TOKEN_SIGN(Flow.REFRESH, "token_sign"),
+        REQUEST_TOKEN_VERIFY(Flow.REQUEST, "token_verify"),
+        REQUEST_AUTHORITY_BUILD(Flow.REQUEST, "authority_build");
+
+        final Flow flow;
+        final String tag;
+
+        Phase(Flow flow, String tag) {
+            this.flow = flow;
+            this.tag = tag;
+        }
+
+        public Flow flow() {
+            return flow;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS("success"),
+        THROTTLED("throttled"),
+        USER_NOT_FOUND("user_not_found"),
+        LOCKED("locked"),
+        BAD_CREDENTIALS("bad_credentials"),
+        TOKEN_INVALID("token_invalid"),
+        TOKEN_EXPIRED("token_expired"),
+        REVOKED("revoked");
+
+        final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Flow[] FLOWS = Flow.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    // [phase][0] = success, [phase][1] = failure
+    private final Timer[][] phaseTimers = new Timer[PHASES.length][2];
+    private final Counter[][] outcomeCounters = new Counter[FLOWS.length][OUTCOMES.length];
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        for (Phase phase : PHASES) {
+            phaseTimers[phase.ordinal()][0] = phaseTimer(meterRegistry, phase, "success");
+            phaseTimers[phase.ordinal()][1] = phaseTimer(meterRegistry, phase, "failure");
+        }
+        for (Flow flow : FLOWS) {
+            for (Outcome outcome : OUTCOMES) {
+                outcomeCounters[flow.ordinal()][outcome.ordinal()] = Counter.builder("auth.outcome")
+                        .tag("flow", flow.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Ghi pha thành công, trả về mốc hiện tại để làm mốc bắt đầu cho pha kế tiếp
+     */
+    public long success(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phaseTimers[phase.ordinal()][0].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /**
+     * Pha từ chối request: ghi timer failure + kết quả cuối của luồng
+     */
+    public void reject(Phase phase, long startNanos, Outcome outcome) {
+        phaseTimers[phase.ordinal()][1].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        outcome(phase.flow, outcome);
+    }
+
+    public void outcome(Flow flow, Outcome outcome) {
+        outcomeCounters[flow.ordinal()][outcome.ordinal()].increment();
+    }
+
+    public Timer timer(Phase phase, boolean success) {
+        return phaseTimers[phase.ordinal()][success ? 0 : 1];
+    }
+
+    public Counter counter(Flow flow, Outcome outcome) {
+        return outcomeCounters[flow.ordinal()][outcome.ordinal()];
+    }
+
+    private static Timer phaseTimer(MeterRegistry meterRegistry, Phase phase, String outcome) {
+        return Timer.builder("auth.phase")
+                .tag("flow", phase.flow.tag)
+                .tag("phase", phase.tag)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
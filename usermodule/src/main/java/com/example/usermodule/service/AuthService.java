@@ -7,13 +7,21 @@ import com.example.usermodule.data.request.AuthProperties;
 import com.example.usermodule.data.response.AuthResponse;
 import com.example.usermodule.data.response.UserDetailResponse;
 import com.example.usermodule.exception.AuthException;
+import com.example.usermodule.exception.TooManyRequestsException;
+import com.example.usermodule.service.AuthMetrics.Flow;
+import com.example.usermodule.service.AuthMetrics.Outcome;
+import com.example.usermodule.service.AuthMetrics.Phase;
 import com.example.usermodule.mapper.UserMapper;
 import com.example.usermodule.repository.UserRepository;
 import com.example.usermodule.repository.UserTokenRepository;
+import com.example.usermodule.util.TokenDigest;
+import com.example.usermodule.data.pojo.TokenPair;
+import io.jsonwebtoken.JwtException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
@@ -26,56 +34,115 @@ public class AuthService {
     private final UserRepository userRepository;
     private final UserTokenRepository userTokenRepository;
     private final JwtService jwtService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final AuthProperties authProperties;
     private final UserService userService;
+    private final LoginStateBuffer loginStateBuffer;
+    private final LoginThrottle loginThrottle;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final AuthMetrics authMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    // LOGIN: tra user + lock check + bcrypt ngoài transaction (không giữ connection Hikari khi chờ pool bcrypt);
+    // chỉ phần ghi (rehash, revoke, phát token, lưu refresh token) chạy trong 1 transaction ngắn.
+    // failedAttempts/lockedUntil ghi qua LoginStateBuffer / lockUser, không phụ thuộc transaction này
+    public AuthResponse login(String username, String rawPassword, String clientIp) {
+        // Throttle trong bộ nhớ: chặn burst trước khi chạm DB và bcrypt
+        try {
+            loginThrottle.checkAllowed(username, clientIp);
+        } catch (TooManyRequestsException e) {
+            authMetrics.outcome(Flow.LOGIN, Outcome.THROTTLED);
+            throw e;
+        }
 
-    // LOGIN
-    public AuthResponse login(String username, String rawPassword) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new AuthException("User not found"));
+        long t = System.nanoTime();
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            authMetrics.reject(Phase.LOGIN_USER_LOOKUP, t, Outcome.USER_NOT_FOUND);
+            loginThrottle.recordFailure(username, clientIp);
+            throw new AuthException("User not found");
+        }
+        t = authMetrics.success(Phase.LOGIN_USER_LOOKUP, t);
 
         // Check locked
         if (user.getLockedUntil() != null && user.getLockedUntil().isAfter(LocalDateTime.now())) {
+            authMetrics.reject(Phase.LOGIN_LOCK_CHECK, t, Outcome.LOCKED);
             throw new AuthException("Account is locked until " + user.getLockedUntil());
         }
+        t = authMetrics.success(Phase.LOGIN_LOCK_CHECK, t);
 
-        // Check password
-        if (!passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
-            handleFailedAttempt(user, username);
+        // Check password (bcrypt chạy trên pool riêng)
+        if (!passwordHashingService.matches(username, rawPassword, user.getPasswordHash())) {
+            handleFailedAttempt(user, username, clientIp);
+            authMetrics.reject(Phase.LOGIN_PASSWORD_VERIFY, t, Outcome.BAD_CREDENTIALS);
             throw new AuthException("Invalid credentials");
         }
 
-        // Success
-        resetLoginAttempts(user);
-        log.info("User {} logged in successfully at {}", username, user.getLastLogin());
-        return generateTokens(user);
+        // Hash cũ cost thấp: hash lại theo cost hiện tại (bcrypt ngoài transaction, tính vào pha password_verify)
+        String upgradedHash = passwordHashingService.needsRehash(user.getPasswordHash())
+                ? passwordHashingService.encode(rawPassword)
+                : null;
+        long issueStart = authMetrics.success(Phase.LOGIN_PASSWORD_VERIFY, t);
+
+        AuthResponse response = transactionTemplate.execute(status -> {
+            if (upgradedHash != null) {
+                userRepository.updatePasswordHash(user.getId(), upgradedHash);
+                log.info("Password hash upgraded for user {}", username);
+            }
+            return generateTokens(user, issueStart);
+        });
+
+        // Success (lastLogin + reset failedAttempts ghi write-behind)
+        loginStateBuffer.recordSuccess(user.getId());
+        loginThrottle.recordSuccess(username);
+        log.info("User {} logged in successfully", username);
+        authMetrics.outcome(Flow.LOGIN, Outcome.SUCCESS);
+        return response;
     }
 
     // REFRESH TOKEN
+    @Transactional
     public AuthResponse refreshToken(String refreshToken) {
-        UserToken token = userTokenRepository.findByRefreshTokenAndRevokedFalse(refreshToken)
-                .orElseThrow(() -> new AuthException("Refresh token not found or revoked"));
+        long t = System.nanoTime();
+        UserToken token = userTokenRepository.findByTokenHashAndRevokedFalse(TokenDigest.sha256(refreshToken))
+                .orElse(null);
+        if (token == null) {
+            authMetrics.reject(Phase.REFRESH_TOKEN_LOOKUP, t, Outcome.TOKEN_INVALID);
+            throw new AuthException("Refresh token not found or revoked");
+        }
 
         if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+            authMetrics.reject(Phase.REFRESH_TOKEN_LOOKUP, t, Outcome.TOKEN_EXPIRED);
             throw new AuthException("Refresh token expired");
         }
+        t = authMetrics.success(Phase.REFRESH_TOKEN_LOOKUP, t);
 
-        User user = userRepository.findById(token.getUserId())
-                .orElseThrow(() -> new AuthException("User not found"));
+        User user = userRepository.findById(token.getUserId()).orElse(null);
+        if (user == null) {
+            authMetrics.reject(Phase.REFRESH_USER_LOOKUP, t, Outcome.USER_NOT_FOUND);
+            throw new AuthException("User not found");
+        }
+        t = authMetrics.success(Phase.REFRESH_USER_LOOKUP, t);
 
         log.info("Refresh token used for user {}", user.getUsername());
 
         // Lấy roles + permissions từ UserService
-        UserDTO dto = userService.getUserDetail(user.getId())
-                .orElseThrow(() -> new AuthException("User detail not found"));
+        UserDTO dto = userService.getUserDetail(user.getId()).orElse(null);
+        if (dto == null) {
+            authMetrics.reject(Phase.REFRESH_RBAC_LOAD, t, Outcome.USER_NOT_FOUND);
+            throw new AuthException("User detail not found");
+        }
         UserDetailResponse userDetail = UserMapper.toResponse(dto);
+        t = authMetrics.success(Phase.REFRESH_RBAC_LOAD, t);
 
         String newAccessToken = jwtService.generateToken(
                 user.getUsername(),
+                user.getUid(),
                 userDetail.getRoles(),
                 userDetail.getPermissions()
         );
+        authMetrics.success(Phase.REFRESH_TOKEN_SIGN, t);
+        authMetrics.outcome(Flow.REFRESH, Outcome.SUCCESS);
 
         return AuthResponse.builder()
                 .username(user.getUsername())
@@ -89,94 +156,105 @@ public class AuthService {
                 .build();
     }
 
-    // LOGOUT (1 device)
-    public void logout(String refreshToken) {
-        UserToken token = userTokenRepository.findByRefreshTokenAndRevokedFalse(refreshToken)
+    // LOGOUT (1 device): revoke refresh token và access token đang dùng (nếu có)
+    @Transactional
+    public void logout(String refreshToken, String accessToken) {
+        UserToken token = userTokenRepository.findByTokenHashAndRevokedFalse(TokenDigest.sha256(refreshToken))
                 .orElseThrow(() -> new AuthException("Refresh token not found or already revoked"));
 
         token.setRevoked(true);
         userTokenRepository.save(token);
+
+        if (accessToken != null) {
+            try {
+                accessTokenDenylist.revoke(jwtService.verify(accessToken));
+            } catch (JwtException e) {
+                // Access token đã hết hạn / không hợp lệ: không cần thu hồi
+            }
+        }
         log.info("Refresh token revoked for userId={}", token.getUserId());
     }
 
-    // LOGOUT ALL DEVICES
+    // LOGOUT ALL DEVICES (1 câu UPDATE cho mọi refresh token + mốc not-before cho access token)
+    @Transactional
     public void logoutAll(Long userId) {
-        userTokenRepository.findActiveTokensByUserId(userId)
-                .forEach(token -> {
-                    token.setRevoked(true);
-                    userTokenRepository.save(token);
-                });
-        log.info("All refresh tokens revoked for userId={}", userId);
+        userTokenRepository.revokeAllTokensByUserId(userId);
+        accessTokenDenylist.revokeAllForUser(userId);
+        log.info("All tokens revoked for userId={}", userId);
     }
 
-    // CHANGE PASSWORD
+    // CHANGE PASSWORD: bcrypt (so mật khẩu cũ + hash mật khẩu mới) ngoài transaction như login,
+    // chỉ ghi password_hash + revoke token trong 1 transaction ngắn
     public void changePassword(String username, String oldPassword, String newPassword) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new AuthException("User not found"));
 
-        if (!passwordEncoder.matches(oldPassword, user.getPasswordHash())) {
+        if (!passwordHashingService.matches(username, oldPassword, user.getPasswordHash())) {
             throw new AuthException("Old password is incorrect");
         }
-
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
-
-        // revoke all tokens
-        logoutAll(user.getId());
+        String newHash = passwordHashingService.encode(newPassword);
+
+        transactionTemplate.execute(status -> {
+            userRepository.updatePasswordHash(user.getId(), newHash);
+            // revoke all tokens
+            logoutAll(user.getId());
+            return null;
+        });
         log.info("Password changed and tokens revoked for user {}", username);
     }
 
     // PRIVATE HELPERS
 
-    private void handleFailedAttempt(User user, String username) {
-        user.setFailedAttempts(user.getFailedAttempts() + 1);
-
-        if (user.getFailedAttempts() >= authProperties.getMaxFailedAttempts()) {
-            user.setLockedUntil(LocalDateTime.now()
-                    .plus(authProperties.getLockDurationMinutes(), ChronoUnit.MINUTES));
-            user.setFailedAttempts(0);
-            log.warn("User {} locked until {}", username, user.getLockedUntil());
+    private void handleFailedAttempt(User user, String username, String clientIp) {
+        // Cửa sổ trượt cục bộ quyết định ngay; số đếm đã flush từ node khác bù cho multi-node
+        int windowFailures = loginThrottle.recordFailure(username, clientIp);
+        int attempts = Math.max(windowFailures, loginStateBuffer.recordFailure(user));
+
+        if (attempts >= authProperties.getMaxFailedAttempts()) {
+            // Khoá ghi đồng bộ để mọi node thấy ngay
+            LocalDateTime lockedUntil = LocalDateTime.now()
+                    .plus(authProperties.getLockDurationMinutes(), ChronoUnit.MINUTES);
+            userRepository.lockUser(user.getId(), lockedUntil);
+            loginStateBuffer.discardFailures(user.getId());
+            log.warn("User {} locked until {}", username, lockedUntil);
         }
 
-        userRepository.save(user);
-        log.warn("Login failed for user {}, attempts={}", username, user.getFailedAttempts());
+        log.warn("Login failed for user {}, attempts={}", username, attempts);
     }
 
-    private void resetLoginAttempts(User user) {
-        user.setFailedAttempts(0);
-        user.setLockedUntil(null);
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
-    }
-
-    private AuthResponse generateTokens(User user) {
-        // revoke old tokens
-        userTokenRepository.findActiveTokensByUserId(user.getId())
-                .forEach(token -> {
-                    token.setRevoked(true);
-                    userTokenRepository.save(token);
-                });
+    // t: mốc bắt đầu pha đầu tiên (nối tiếp pha trước của login)
+    private AuthResponse generateTokens(User user, long t) {
+        // revoke old tokens (set-based)
+        userTokenRepository.revokeAllTokensByUserId(user.getId());
+        t = authMetrics.success(Phase.LOGIN_TOKEN_REVOKE, t);
 
         // Lấy roles + permissions từ UserService
-        UserDTO dto = userService.getUserDetail(user.getId())
-                .orElseThrow(() -> new AuthException("User detail not found"));
+        UserDTO dto = userService.getUserDetail(user.getId()).orElse(null);
+        if (dto == null) {
+            authMetrics.reject(Phase.LOGIN_RBAC_LOAD, t, Outcome.USER_NOT_FOUND);
+            throw new AuthException("User detail not found");
+        }
         UserDetailResponse userDetail = UserMapper.toResponse(dto);
+        t = authMetrics.success(Phase.LOGIN_RBAC_LOAD, t);
 
-        String accessToken = jwtService.generateToken(
+        TokenPair tokens = jwtService.generateTokenPair(
                 user.getUsername(),
+                user.getUid(),
                 userDetail.getRoles(),
                 userDetail.getPermissions()
         );
-
-        String refreshToken = jwtService.generateRefreshToken(user.getUsername());
+        t = authMetrics.success(Phase.LOGIN_TOKEN_SIGN, t);
+        String accessToken = tokens.accessToken();
+        String refreshToken = tokens.refreshToken();
 
         UserToken userToken = new UserToken();
         userToken.setUserId(user.getId());
-        userToken.setRefreshToken(refreshToken);
+        userToken.setTokenHash(TokenDigest.sha256(refreshToken));
         userToken.setCreatedAt(LocalDateTime.now());
         userToken.setExpiresAt(LocalDateTime.now().plusDays(7));
         userToken.setRevoked(false);
         userTokenRepository.save(userToken);
+        authMetrics.success(Phase.LOGIN_REFRESH_PERSIST, t);
 
         return AuthResponse.builder()
                 .username(user.getUsername())
@@ -0,0 +1,85 @@
+package com.example.usermodule.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intern GrantedAuthority theo role/permission và cache nguyên danh sách authorities
+ * theo fingerprint của cặp (roles, permissions) trong claims.
+ * Số tổ hợp role/permission thực tế rất nhỏ nên request ổn định gần như không cấp phát gì
+ */
+@Component
+public class AuthorityRegistry {
+
+    // Chặn trên số tổ hợp giữ trong bộ nhớ, vượt quá thì dựng mới nhưng không lưu
+    private static final int MAX_COMBINATIONS = 4096;
+
+    private final Map<String, GrantedAuthority> roleAuthorities = new ConcurrentHashMap<>();
+    private final Map<String, GrantedAuthority> permissionAuthorities = new ConcurrentHashMap<>();
+    private final Map<Long, AuthoritySet> combinations = new ConcurrentHashMap<>();
+
+    public AuthorityRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("auth.authority.combinations", combinations, Map::size)
+                .description("Distinct role/permission combinations interned")
+                .register(meterRegistry);
+    }
+
+    public GrantedAuthority role(String role) {
+        return roleAuthorities.computeIfAbsent(role, r -> new SimpleGrantedAuthority("ROLE_" + r));
+    }
+
+    public GrantedAuthority permission(String code) {
+        return permissionAuthorities.computeIfAbsent(code, SimpleGrantedAuthority::new);
+    }
+
+    /**
+     * Trả về danh sách authorities bất biến dùng chung cho mọi token có cùng roles + permissions
+     */
+    public List<GrantedAuthority> authoritiesFor(List<String> roles, List<String> permissions) {
+        long fingerprint = fingerprint(roles, permissions);
+
+        AuthoritySet cached = combinations.get(fingerprint);
+        if (cached != null && cached.matches(roles, permissions)) {
+            return cached.authorities;
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size() + permissions.size());
+        for (String r : roles) authorities.add(role(r));
+        for (String p : permissions) authorities.add(permission(p));
+        List<GrantedAuthority> result = Collections.unmodifiableList(authorities);
+
+        // Trùng fingerprint (hiếm) thì giữ entry cũ, chỉ trả kết quả mới
+        if (cached == null && combinations.size() < MAX_COMBINATIONS) {
+            combinations.putIfAbsent(fingerprint, new AuthoritySet(List.copyOf(roles), List.copyOf(permissions), result));
+        }
+        return result;
+    }
+
+    // Hash 64-bit theo thứ tự, dùng String.hashCode (đã cache trong String) nên không cấp phát
+    private static long fingerprint(List<String> roles, List<String> permissions) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < roles.size(); i++) {
+            h = 31 * h + roles.get(i).hashCode();
+        }
+        h = 31 * h + roles.size();
+        for (int i = 0; i < permissions.size(); i++) {
+            h = 31 * h + permissions.get(i).hashCode();
+        }
+        return 31 * h + permissions.size();
+    }
+
+    private record AuthoritySet(List<String> roles, List<String> permissions, List<GrantedAuthority> authorities) {
+        boolean matches(List<String> otherRoles, List<String> otherPermissions) {
+            return roles.equals(otherRoles) && permissions.equals(otherPermissions);
+        }
+    }
+}
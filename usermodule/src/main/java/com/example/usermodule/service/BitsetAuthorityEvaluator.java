@@ -0,0 +1,33 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.PermissionBits;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kiểm tra permission bằng bitset của token, dùng trong @PreAuthorize("@authz.has('JOB_POST')").
+ * Token không có bitmap thì so chuỗi trên danh sách authorities như hasAuthority
+ */
+@Component("authz")
+public class BitsetAuthorityEvaluator {
+
+    public boolean has(String code) {
+        return has(SecurityContextHolder.getContext().getAuthentication(), code);
+    }
+
+    public boolean has(Authentication authentication, String code) {
+        if (authentication == null) return false;
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (authority instanceof PermissionBits bits) {
+                return bits.has(code);
+            }
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (code.equals(authority.getAuthority())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.BulkRegistrationProperties;
+import com.example.usermodule.data.request.RegisterRequest;
+import com.example.usermodule.data.response.BulkRegisterResult;
+import com.example.usermodule.data.response.BulkRegisterResult.Status;
+import com.example.usermodule.util.JsonResponseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đăng ký hàng loạt từ CSV hoặc NDJSON: đọc stream theo batch, hash bcrypt song song,
+ * insert bằng JDBC batch với ON CONFLICT (username) DO NOTHING (unique constraint quyết định trùng, không query trước).
+ * Kết quả từng dòng ghi ra NDJSON ngay sau mỗi batch, không giữ toàn bộ trong bộ nhớ
+ */
+@Slf4j
+@Service
+public class BulkRegistrationService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (uid, username, email, phone, password_hash, active, failed_attempts, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, 1, 0, ?) ON CONFLICT (username) DO NOTHING";
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectReader requestReader;
+    private final JsonResponseWriter jsonResponseWriter;
+    private final BulkRegistrationProperties properties;
+    private final ExecutorService hashExecutor;
+
+    public BulkRegistrationService(JdbcTemplate jdbcTemplate,
+                                   PasswordEncoder passwordEncoder,
+                                   ObjectMapper objectMapper,
+                                   JsonResponseWriter jsonResponseWriter,
+                                   BulkRegistrationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.requestReader = objectMapper.readerFor(RegisterRequest.class);
+        this.jsonResponseWriter = jsonResponseWriter;
+        this.properties = properties;
+
+        int threads = properties.getHashThreads() > 0
+                ? properties.getHashThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        this.hashExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-hash-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * csv = true: dòng đầu là header (username,email,phone,password), ngược lại mỗi dòng 1 object JSON
+     */
+    public void register(InputStream in, boolean csv, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, Integer> header = csv ? parseHeader(reader.readLine()) : null;
+
+        List<Row> batch = new ArrayList<>(properties.getBatchSize());
+        long rowNumber = 0;
+        int created = 0, duplicate = 0, rejected = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            rowNumber++;
+
+            Row row = new Row(rowNumber);
+            try {
+                row.request = csv ? fromCsv(line, header) : requestReader.readValue(line);
+                row.error = validate(row.request);
+            } catch (Exception e) {
+                row.error = "Unparseable row";
+            }
+            if (row.error != null) row.status = Status.INVALID;
+            batch.add(row);
+
+            if (batch.size() >= properties.getBatchSize()) {
+                int[] counts = flush(batch, out);
+                created += counts[0]; duplicate += counts[1]; rejected += counts[2];
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            int[] counts = flush(batch, out);
+            created += counts[0]; duplicate += counts[1]; rejected += counts[2];
+        }
+        log.info("Bulk registration done: rows={}, created={}, duplicate={}, rejected={}",
+                rowNumber, created, duplicate, rejected);
+    }
+
+    // Hash song song -> 1 JDBC batch -> ghi kết quả; trả về [created, duplicate, rejected]
+    private int[] flush(List<Row> batch, OutputStream out) throws IOException {
+        List<Row> valid = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.status == null) valid.add(row);
+        }
+
+        hashAll(valid);
+        insertAll(valid);
+
+        int[] counts = new int[3];
+        for (Row row : batch) {
+            Status status = row.status;
+            switch (status) {
+                case CREATED -> counts[0]++;
+                case DUPLICATE -> counts[1]++;
+                default -> counts[2]++;
+            }
+            String username = row.request != null ? row.request.getUsername() : null;
+            jsonResponseWriter.writeTo(out, new BulkRegisterResult(row.number, username, status, row.error));
+            out.write(NEWLINE);
+        }
+        out.flush();
+        return counts;
+    }
+
+    private void hashAll(List<Row> rows) {
+        List<Callable<String>> tasks = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            String raw = row.request.getPassword();
+            tasks.add(() -> passwordEncoder.encode(raw));
+        }
+        try {
+            List<Future<String>> hashes = hashExecutor.invokeAll(tasks);
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).passwordHash = hashes.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk registration interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // Update count 0 = dòng bị ON CONFLICT bỏ qua (trùng username, kể cả trùng trong cùng batch)
+    private void insertAll(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            int[] updated = jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setString(2, row.request.getUsername());
+                ps.setString(3, row.request.getEmail());
+                ps.setString(4, row.request.getPhone());
+                ps.setString(5, row.passwordHash);
+                ps.setTimestamp(6, now);
+            })[0];
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).status = updated[i] > 0 ? Status.CREATED : Status.DUPLICATE;
+            }
+        } catch (DataAccessException e) {
+            log.error("Bulk registration batch failed: {}", e.getMessage());
+            for (Row row : rows) {
+                row.status = Status.FAILED;
+                row.error = "Batch insert failed";
+            }
+        }
+    }
+
+    private String validate(RegisterRequest request) {
+        String username = request.getUsername();
+        if (username == null || username.isBlank()) return "Username is required";
+        if (username.length() > properties.getMaxUsernameLength()) return "Username is too long";
+        String password = request.getPassword();
+        if (password == null || password.length() < properties.getMinPasswordLength()) return "Password is too short";
+        String email = request.getEmail();
+        if (email != null && !email.isBlank() && email.indexOf('@') < 1) return "Invalid email";
+        return null;
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        if (line == null) return Map.of();
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(), i);
+        }
+        return header;
+    }
+
+    private static RegisterRequest fromCsv(String line, Map<String, Integer> header) {
+        List<String> fields = splitCsv(line);
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(field(fields, header, "username"));
+        request.setEmail(field(fields, header, "email"));
+        request.setPhone(field(fields, header, "phone"));
+        request.setPassword(field(fields, header, "password"));
+        return request;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> header, String name) {
+        Integer idx = header.get(name);
+        if (idx == null || idx >= fields.size()) return null;
+        String value = fields.get(idx).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // CSV 1 dòng: hỗ trợ field trong "..." và "" để escape dấu nháy
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static final class Row {
+        final long number;
+        RegisterRequest request;
+        String passwordHash;
+        String error;
+        Status status;
+
+        Row(long number) {
+            this.number = number;
+        }
+    }
+}
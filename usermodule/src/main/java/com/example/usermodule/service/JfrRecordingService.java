@@ -0,0 +1,246 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.config.jfr.JfrEvents;
+import com.example.usermodule.data.pojo.JfrProperties;
+import com.example.usermodule.exception.RecordingStateException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recording JFR theo yêu cầu (admin): mỗi lúc tối đa 1 recording, có giới hạn thời gian + dung lượng.
+ * Gồm event của JDK (theo app.jfr.settings) và event của module (JfrEvents.TYPES).
+ * File .jfr của recording trước được giữ tới khi recording mới kết thúc (có thể đang được tải về),
+ * sau đó bị xoá; lúc nào cũng chỉ còn tối đa 2 file.
+ * ReentrantLock thay synchronized: trong lock có I/O file
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JfrRecordingService {
+
+    // Có thể chứa secret (biến môi trường, -D, tham số JVM): không đưa vào file tải về
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation"
+    );
+
+    private final JfrProperties properties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Recording recording;
+    private Path file;
+    // File của recording trước, xoá khi recording hiện tại kết thúc
+    private Path previousFile;
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.hasText(properties.getUsernameHashKey())) {
+            JfrEvents.setUsernameHashKey(properties.getUsernameHashKey().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public Map<String, Object> start(Integer durationSeconds, Integer maxSizeMb) {
+        lock.lock();
+        try {
+            return doStart(durationSeconds, maxSizeMb);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> doStart(Integer durationSeconds, Integer maxSizeMb) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new RecordingStateException("A recording is already running");
+        }
+        // File vừa xong có thể đang được stream (stop / recording): giữ lại, xoá file cũ hơn
+        deletePrevious();
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        previousFile = file;
+        file = null;
+
+        Duration duration = Duration.ofSeconds(
+                bounded(durationSeconds, properties.getDefaultDurationSeconds(), properties.getMaxDurationSeconds()));
+        long maxSize = bounded(maxSizeMb, properties.getDefaultMaxSizeMb(), properties.getMaxSizeMb()) * 1024L * 1024L;
+
+        Recording created;
+        try {
+            created = new Recording(Configuration.getConfiguration(properties.getSettings()));
+            file = Files.createTempFile(directory(), "auth-profile-", ".jfr");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JFR settings: " + properties.getSettings(), e);
+        }
+
+        Duration threshold = Duration.ofMillis(properties.getEventThresholdMs());
+        for (Class<? extends Event> type : JfrEvents.TYPES) {
+            created.enable(type).withThreshold(threshold);
+        }
+        SENSITIVE_EVENTS.forEach(created::disable);
+
+        created.setName("auth-profile");
+        created.setToDisk(true);
+        created.setMaxSize(maxSize);
+        // Tự dừng và ghi ra file khi hết duration, kể cả khi không ai gọi stop
+        created.setDuration(duration);
+        try {
+            created.setDestination(file);
+        } catch (IOException e) {
+            created.close();
+            throw new UncheckedIOException(e);
+        }
+        created.start();
+        recording = created;
+
+        log.info("JFR recording {} started: duration={}, maxSize={}MB, file={}",
+                created.getId(), duration, maxSize / (1024 * 1024), file);
+        return doStatus();
+    }
+
+    /**
+     * Dừng recording đang chạy (nếu còn chạy) và trả về file .jfr
+     */
+    public Path stop() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                throw new RecordingStateException("No recording has been started");
+            }
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("JFR recording {} stopped, file={}", recording.getId(), file);
+            }
+            deletePrevious();
+            return file;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * File của recording gần nhất đã dừng (hết duration hoặc đã gọi stop)
+     */
+    public Path lastRecording() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                throw new RecordingStateException("No recording has been started");
+            }
+            if (!finished()) {
+                throw new RecordingStateException("Recording is still running, stop it first");
+            }
+            deletePrevious();
+            return file;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> status() {
+        lock.lock();
+        try {
+            return doStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> doStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("id", recording.getId());
+        status.put("state", finished() ? "STOPPED" : recording.getState().name());
+        status.put("settings", properties.getSettings());
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("duration", recording.getDuration());
+        status.put("maxSizeBytes", recording.getMaxSize());
+        status.put("sizeBytes", finished() ? fileSize() : recording.getSize());
+        return status;
+    }
+
+    // Có destination nên JFR tự đóng recording sau khi ghi file (STOPPED -> CLOSED)
+    private boolean finished() {
+        RecordingState state = recording.getState();
+        return state == RecordingState.STOPPED || state == RecordingState.CLOSED;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                recording.close();
+                recording = null;
+            }
+            deletePrevious();
+            delete(file);
+            file = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deletePrevious() {
+        delete(previousFile);
+        previousFile = null;
+    }
+
+    private void delete(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete old JFR file {}", path, e);
+        }
+    }
+
+    private long fileSize() {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private Path directory() throws IOException {
+        Path dir = Path.of(properties.getDirectory() != null && !properties.getDirectory().isBlank()
+                ? properties.getDirectory()
+                : System.getProperty("java.io.tmpdir"));
+        return Files.createDirectories(dir);
+    }
+
+    // Thiếu hoặc <= 0: giá trị mặc định; không vượt quá max
+    private static int bounded(Integer requested, int defaultValue, int max) {
+        int value = requested == null || requested <= 0 ? defaultValue : requested;
+        return Math.min(value, max);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.SigningKey;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Phát JWS compact không qua builder của jjwt: header mã hoá base64url sẵn,
+ * claims ghi thẳng ra JSON bằng StringBuilder dùng lại, Mac / Signature lấy từ pool.
+ * Pool thay cho ThreadLocal để vẫn dùng lại được khi chạy virtual thread (mỗi request 1 thread).
+ * Token đọc lại bằng parser của jjwt như bình thường
+ */
+final class JwtIssuer {
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final int POOL_SIZE = 64;
+
+    private final SecretKey secretKey;
+    private final JwtKeyManager jwtKeyManager;
+    private final String hs256Header;
+    private final Map<String, String> es256Headers = new ConcurrentHashMap<>();
+    private final BlockingQueue<Context> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    JwtIssuer(SecretKey secretKey, JwtKeyManager jwtKeyManager) {
+        this.secretKey = secretKey;
+        this.jwtKeyManager = jwtKeyManager;
+        this.hs256Header = encodeHeader("{\"alg\":\"HS256\"}");
+    }
+
+    String issue(Consumer<ClaimsWriter> claims) {
+        Context ctx = borrow();
+        try {
+            return ctx.sign(claims);
+        } finally {
+            release(ctx);
+        }
+    }
+
+    // 2 token dùng chung 1 lần mượn context (login / refresh / SSO)
+    String[] issuePair(Consumer<ClaimsWriter> first, Consumer<ClaimsWriter> second) {
+        Context ctx = borrow();
+        try {
+            return new String[]{ctx.sign(first), ctx.sign(second)};
+        } finally {
+            release(ctx);
+        }
+    }
+
+    private Context borrow() {
+        Context ctx = pool.poll();
+        return ctx != null ? ctx : new Context();
+    }
+
+    private void release(Context ctx) {
+        pool.offer(ctx);
+    }
+
+    private static String encodeHeader(String json) {
+        return B64.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ghi 1 object JSON phẳng (string, số, mảng string) - đủ cho claims của access / refresh token
+     */
+    static final class ClaimsWriter {
+        private final StringBuilder json = new StringBuilder(512);
+        private boolean first;
+
+        private void reset() {
+            json.setLength(0);
+            json.append('{');
+            first = true;
+        }
+
+        public ClaimsWriter string(String name, String value) {
+            if (value == null) return this;
+            name(name);
+            quote(value);
+            return this;
+        }
+
+        public ClaimsWriter number(String name, long value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        public ClaimsWriter array(String name, Collection<String> values) {
+            if (values == null) return this;
+            name(name);
+            json.append('[');
+            boolean firstValue = true;
+            for (String value : values) {
+                if (!firstValue) json.append(',');
+                quote(value);
+                firstValue = false;
+            }
+            json.append(']');
+            return this;
+        }
+
+        private void name(String name) {
+            if (!first) json.append(',');
+            first = false;
+            quote(name);
+            json.append(':');
+        }
+
+        private void quote(String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    case '\n' -> json.append("\\n");
+                    case '\r' -> json.append("\\r");
+                    case '\t' -> json.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            json.append('"');
+        }
+
+        private String finish() {
+            return json.append('}').toString();
+        }
+    }
+
+    private final class Context {
+        private final ClaimsWriter writer = new ClaimsWriter();
+        private Mac mac;
+        private Signature ecSigner;
+        private String ecKid;
+
+        String sign(Consumer<ClaimsWriter> claims) {
+            writer.reset();
+            claims.accept(writer);
+            String payload = B64.encodeToString(writer.finish().getBytes(StandardCharsets.UTF_8));
+
+            try {
+                if (jwtKeyManager.isEnabled()) {
+                    SigningKey key = jwtKeyManager.activeKey();
+                    String header = es256Headers.computeIfAbsent(key.kid(),
+                            kid -> encodeHeader("{\"kid\":\"" + kid + "\",\"alg\":\"ES256\"}"));
+                    String signingInput = header + "." + payload;
+                    if (!key.kid().equals(ecKid)) {
+                        // Chữ ký R||S 64 bytes đúng chuẩn JOSE, không cần đổi từ DER
+                        ecSigner = Signature.getInstance("SHA256withECDSAinP1363Format");
+                        ecSigner.initSign(key.privateKey());
+                        ecKid = key.kid();
+                    }
+                    ecSigner.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+                    return signingInput + "." + B64.encodeToString(ecSigner.sign());
+                }
+
+                String signingInput = hs256Header + "." + payload;
+                if (mac == null) {
+                    mac = Mac.getInstance("HmacSHA256");
+                    mac.init(secretKey);
+                }
+                byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+                return signingInput + "." + B64.encodeToString(signature);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot sign JWT", e);
+            }
+        }
+    }
+}
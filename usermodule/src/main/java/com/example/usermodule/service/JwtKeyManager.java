@@ -0,0 +1,333 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.SigningKey;
+import com.example.usermodule.util.TokenDigest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Quản lý khoá ký ES256 dùng chung giữa các node qua bảng jwt_signing_keys.
+ * Khoá mới được công bố trong JWKS trước (publishDelay) rồi mới dùng để ký,
+ * khoá cũ vẫn verify được tới khi mọi token nó ký đã hết hạn.
+ * Private key lưu DB dạng mã hoá AES-GCM bằng khoá dẫn xuất từ jwt.secret
+ */
+@Slf4j
+@Service
+public class JwtKeyManager {
+
+    private static final String ALGORITHM = "ES256";
+    private static final int GCM_IV_BYTES = 12;
+    // kid lạ chỉ kích hoạt nạp lại DB tối đa 1 lần trong khoảng này
+    private static final long UNKNOWN_KID_RELOAD_MS = 5_000;
+    // Request thread chờ tối đa chừng này khi luồng khác đang nạp khoá
+    private static final long RELOAD_WAIT_MS = 1_000;
+    // Khoá advisory Postgres (transaction-level) tuần tự hoá việc tạo khoá giữa các node
+    private static final long ROTATION_LOCK_ID = 0x6A77746B6579L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtProperties jwtProperties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom random = new SecureRandom();
+    // Chỉ 1 luồng nạp / xoay khoá trong 1 node
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile KeySet keySet = KeySet.EMPTY;
+    private volatile long lastLoadedAt;
+
+    public JwtKeyManager(JdbcTemplate jdbcTemplate, JwtProperties jwtProperties, ObjectMapper objectMapper,
+                         TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jwtProperties = jwtProperties;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isEnabled() {
+        return ALGORITHM.equals(jwtProperties.getAlgorithm());
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) return;
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Bảng có thể chưa được tạo (schema.sql chạy sau), activeKey() sẽ thử lại
+            log.warn("JWT signing keys not loaded yet: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại khoá từ DB, tạo khoá mới nếu tới hạn xoay vòng, dọn khoá đã hết hạn
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.refresh-ms:60000}")
+    public void refresh() {
+        if (!isEnabled()) return;
+        reloadLock.lock();
+        try {
+            rotate();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Gọi khi đang giữ reloadLock
+    private void rotate() {
+        Instant now = Instant.now();
+        KeySet loaded = load();
+        if (needsNewKey(loaded, now)) {
+            // Giữ advisory lock tới hết transaction: node đến sau nạp lại và thấy khoá node trước vừa tạo
+            loaded = transactionTemplate.execute(status -> {
+                jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, ROTATION_LOCK_ID);
+                KeySet current = load();
+                if (!needsNewKey(current, now)) return current;
+                // Chưa có khoá nào: kích hoạt ngay; ngược lại khoá mới chờ publishDelay
+                generate(current.activeAt(now) == null
+                        ? now
+                        : now.plus(Duration.ofMinutes(jwtProperties.getKeys().getPublishDelayMinutes())));
+                return load();
+            });
+        }
+
+        // Dọn khoá hết hạn trước khi công bố để JWKS không còn khoá đã xoá
+        SigningKey active = loaded.activeAt(now);
+        if (active != null && jdbcTemplate.update("DELETE FROM jwt_signing_keys WHERE expires_at < ? AND kid <> ?",
+                Timestamp.from(now), active.kid()) > 0) {
+            loaded = load();
+        }
+        keySet = loaded;
+        lastLoadedAt = System.currentTimeMillis();
+    }
+
+    private boolean needsNewKey(KeySet keys, Instant now) {
+        SigningKey newest = keys.newest();
+        return newest == null || newest.activatesAt()
+                .plus(Duration.ofHours(jwtProperties.getKeys().getRotationHours()))
+                .isBefore(now);
+    }
+
+    // Khoá đang ký: khoá mới nhất đã tới giờ kích hoạt (chọn trong bộ nhớ, không truy vấn DB)
+    public SigningKey activeKey() {
+        SigningKey active = keySet.activeAt(Instant.now());
+        if (active == null) {
+            // Chưa nạp được khoá (vd. bảng chưa có lúc khởi động): 1 luồng xoay khoá, luồng khác chờ rồi kiểm tra lại
+            withReloadLock(() -> {
+                if (keySet.activeAt(Instant.now()) == null) rotate();
+            });
+            active = keySet.activeAt(Instant.now());
+        }
+        if (active == null) {
+            throw new IllegalStateException("No active JWT signing key");
+        }
+        return active;
+    }
+
+    public Optional<ECPublicKey> verificationKey(String kid) {
+        SigningKey key = keySet.byKid.get(kid);
+        if (key == null && isEnabled() && reloadDue()) {
+            // kid lạ: có thể node khác vừa xoay khoá. Chỉ đọc DB (không tạo / xoá khoá),
+            // kiểm tra lại dưới lock để 1 loạt kid ngẫu nhiên chỉ gây 1 lần nạp
+            withReloadLock(() -> {
+                if (!keySet.byKid.containsKey(kid) && reloadDue()) {
+                    keySet = load();
+                    lastLoadedAt = System.currentTimeMillis();
+                }
+            });
+            key = keySet.byKid.get(kid);
+        }
+        return key != null ? Optional.of(key.publicKey()) : Optional.empty();
+    }
+
+    // kid có trong bộ khoá đã nạp (khoá đã xoá khỏi jwt_signing_keys thì không còn)
+    public boolean isKnownKey(String kid) {
+        return keySet.byKid.containsKey(kid);
+    }
+
+    private boolean reloadDue() {
+        return System.currentTimeMillis() - lastLoadedAt > UNKNOWN_KID_RELOAD_MS;
+    }
+
+    // Hết thời gian chờ: bỏ qua, dùng bộ khoá hiện có
+    private void withReloadLock(Runnable action) {
+        try {
+            if (!reloadLock.tryLock(RELOAD_WAIT_MS, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            action.run();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // JWKS dựng sẵn mỗi lần nạp khoá
+    public String jwksJson() {
+        return keySet.jwks;
+    }
+
+    public String jwksETag() {
+        return keySet.etag;
+    }
+
+    private void generate(Instant activatesAt) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"), random);
+            KeyPair pair = generator.generateKeyPair();
+
+            byte[] kidBytes = new byte[8];
+            random.nextBytes(kidBytes);
+            String kid = HexFormat.of().formatHex(kidBytes);
+
+            // Ký tối đa tới khi khoá kế tiếp kích hoạt, verify thêm 1 vòng đời access token
+            Instant expiresAt = activatesAt
+                    .plus(Duration.ofHours(jwtProperties.getKeys().getRotationHours()))
+                    .plus(Duration.ofMinutes(jwtProperties.getKeys().getPublishDelayMinutes()))
+                    .plusMillis(jwtProperties.getKeys().getRefreshMs())
+                    .plusMillis(jwtProperties.getExpiration());
+
+            jdbcTemplate.update(
+                    "INSERT INTO jwt_signing_keys (kid, algorithm, public_key, private_key, created_at, activates_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    kid, ALGORITHM, pair.getPublic().getEncoded(), encrypt(pair.getPrivate().getEncoded()),
+                    Timestamp.from(Instant.now()), Timestamp.from(activatesAt), Timestamp.from(expiresAt));
+            log.info("JWT signing key {} created, active from {}", kid, activatesAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate JWT signing key", e);
+        }
+    }
+
+    private KeySet load() {
+        List<SigningKey> keys = jdbcTemplate.query(
+                "SELECT kid, public_key, private_key, activates_at, expires_at FROM jwt_signing_keys " +
+                "WHERE algorithm = ? ORDER BY activates_at",
+                (rs, i) -> toSigningKey(
+                        rs.getString(1), rs.getBytes(2), rs.getBytes(3),
+                        rs.getTimestamp(4).toInstant(), rs.getTimestamp(5).toInstant()),
+                ALGORITHM);
+        return KeySet.of(keys, this::toJwks);
+    }
+
+    private SigningKey toSigningKey(String kid, byte[] publicKey, byte[] privateKey, Instant activatesAt, Instant expiresAt) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            return new SigningKey(kid,
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(decrypt(privateKey))),
+                    (ECPublicKey) factory.generatePublic(new X509EncodedKeySpec(publicKey)),
+                    activatesAt, expiresAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load JWT signing key " + kid, e);
+        }
+    }
+
+    private String toJwks(List<SigningKey> keys) {
+        List<Map<String, String>> jwks = new ArrayList<>(keys.size());
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        for (SigningKey key : keys) {
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", key.kid());
+            jwk.put("use", "sig");
+            jwk.put("alg", ALGORITHM);
+            jwk.put("x", b64.encodeToString(coordinate(key.publicKey().getW().getAffineX().toByteArray())));
+            jwk.put("y", b64.encodeToString(coordinate(key.publicKey().getW().getAffineY().toByteArray())));
+            jwks.add(jwk);
+        }
+        try {
+            return objectMapper.writeValueAsString(Map.of("keys", jwks));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Toạ độ P-256 cố định 32 bytes (BigInteger có thể thừa byte dấu hoặc thiếu số 0 đầu)
+    private static byte[] coordinate(byte[] value) {
+        byte[] out = new byte[32];
+        int length = Math.min(value.length, 32);
+        System.arraycopy(value, value.length - length, out, 32 - length, length);
+        return out;
+    }
+
+    private byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey(), new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(plain);
+        return ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array();
+    }
+
+    private byte[] decrypt(byte[] stored) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, wrappingKey(), new GCMParameterSpec(128, stored, 0, GCM_IV_BYTES));
+        return cipher.doFinal(stored, GCM_IV_BYTES, stored.length - GCM_IV_BYTES);
+    }
+
+    private SecretKeySpec wrappingKey() {
+        return new SecretKeySpec(TokenDigest.sha256(jwtProperties.getSecret()), "AES");
+    }
+
+    private record KeySet(Map<String, SigningKey> byKid, List<SigningKey> ordered, String jwks, String etag) {
+        static final KeySet EMPTY = new KeySet(Map.of(), List.of(), "{\"keys\":[]}", "\"empty\"");
+
+        // keys đã sắp theo activates_at tăng dần
+        static KeySet of(List<SigningKey> keys, Function<List<SigningKey>, String> jwksWriter) {
+            Map<String, SigningKey> byKid = new LinkedHashMap<>();
+            for (SigningKey key : keys) {
+                byKid.put(key.kid(), key);
+            }
+            String jwks = jwksWriter.apply(keys);
+            String etag = "\"" + TokenDigest.toHex(TokenDigest.sha256(jwks)).substring(0, 16) + "\"";
+            return new KeySet(Map.copyOf(byKid), List.copyOf(keys), jwks, etag);
+        }
+
+        SigningKey newest() {
+            return ordered.isEmpty() ? null : ordered.get(ordered.size() - 1);
+        }
+
+        SigningKey activeAt(Instant now) {
+            for (int i = ordered.size() - 1; i >= 0; i--) {
+                if (!ordered.get(i).activatesAt().isAfter(now)) return ordered.get(i);
+            }
+            return null;
+        }
+    }
+}
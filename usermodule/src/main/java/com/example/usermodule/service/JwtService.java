@@ -1,48 +1,217 @@
 package com.example.usermodule.service;
 
+import com.example.usermodule.config.jfr.JfrEvents;
+import com.example.usermodule.config.jfr.TokenIssueEvent;
 import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.PermissionBits;
+import com.example.usermodule.data.pojo.TokenPair;
+import com.example.usermodule.data.pojo.VerifiedToken;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.util.Date;
+import java.security.Key;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class JwtService {
+    // Permission dạng bitmap: version catalog + bitset base64url
+    static final String PERMISSION_VERSION_CLAIM = "pv";
+    static final String PERMISSION_BITMAP_CLAIM = "pbm";
+    // Loại token: resource server (jobmodule) chỉ nhận access token làm bearer
+    static final String TOKEN_USE_CLAIM = "token_use";
+    static final String ACCESS_TOKEN_USE = "access";
+    static final String REFRESH_TOKEN_USE = "refresh";
+
     private final JwtProperties jwtProperties;
+    private final PermissionRegistry permissionRegistry;
+    private final JwtKeyManager jwtKeyManager;
     private final SecretKey secretKey;
+    private final JwtParser jwtParser;
+    private final JwtIssuer jwtIssuer;
+    // Mốc mặc định của giai đoạn chuyển tiếp HS256 khi không cấu hình jwt.legacy-hs256-until
+    private final Instant defaultHs256Until;
 
-    public JwtService(JwtProperties jwtProperties) {
+    public JwtService(JwtProperties jwtProperties, PermissionRegistry permissionRegistry, JwtKeyManager jwtKeyManager) {
         this.jwtProperties = jwtProperties;
+        this.permissionRegistry = permissionRegistry;
+        this.jwtKeyManager = jwtKeyManager;
         // Tạo SecretKey từ chuỗi bí mật
         this.secretKey = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes());
+        this.jwtIssuer = new JwtIssuer(secretKey, jwtKeyManager);
+        this.defaultHs256Until = Instant.now().plusMillis(jwtProperties.getExpiration());
+        // Parser thread-safe, dựng 1 lần dùng cho mọi request.
+        // Có kid: public key ES256 theo kid; không có kid: token HS256 ký bằng secret (xem acceptsHs256)
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    @SuppressWarnings("rawtypes")
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveVerificationKey(header.getKeyId());
+                    }
+                })
+                .build();
     }
 
     // Tạo Access Token
     public String generateToken(String username, Set<String> roles, Set<String> permissions) {
-        return Jwts.builder()
-                .setSubject(username)
-                .claim("roles", roles)
-                .claim("permissions", permissions)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtProperties.getExpiration()))
-                .signWith(secretKey, SignatureAlgorithm.HS256)
-                .compact();
+        return generateToken(username, null, roles, permissions);
+    }
+
+    // Tạo Access Token kèm uid (dùng cho chế độ stateless)
+    public String generateToken(String username, UUID uid, Set<String> roles, Set<String> permissions) {
+        TokenIssueEvent event = new TokenIssueEvent();
+        event.begin();
+        long now = epochSeconds();
+        PermissionBits bits = permissionBits(permissions);
+        String token = jwtIssuer.issue(w -> writeAccessClaims(w, username, uid, roles, permissions, bits, now));
+        commit(event, "access", username, permissions);
+        return token;
     }
 
     // Tạo Refresh Token
     public String generateRefreshToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtProperties.getRefreshExpiration()))
-                .signWith(secretKey, SignatureAlgorithm.HS256)
-                .compact();
+        TokenIssueEvent event = new TokenIssueEvent();
+        event.begin();
+        long now = epochSeconds();
+        String token = jwtIssuer.issue(w -> writeRefreshClaims(w, username, now));
+        commit(event, "refresh", username, null);
+        return token;
+    }
+
+    // Access + refresh trong 1 lần: dùng chung thời điểm và 1 context ký
+    public TokenPair generateTokenPair(String username, UUID uid, Set<String> roles, Set<String> permissions) {
+        TokenIssueEvent event = new TokenIssueEvent();
+        event.begin();
+        long now = epochSeconds();
+        PermissionBits bits = permissionBits(permissions);
+        String[] tokens = jwtIssuer.issuePair(
+                w -> writeAccessClaims(w, username, uid, roles, permissions, bits, now),
+                w -> writeRefreshClaims(w, username, now));
+        commit(event, "pair", username, permissions);
+        return new TokenPair(tokens[0], tokens[1]);
+    }
+
+    // Chỉ hash username khi có recording JFR bật event này
+    private static void commit(TokenIssueEvent event, String kind, String username, Set<String> permissions) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.usernameHash = JfrEvents.usernameHash(username);
+            event.permissions = permissions != null ? permissions.size() : 0;
+            event.commit();
+        }
+    }
+
+    // Bitmap khi mọi permission đều có trong catalog hiện tại, ngược lại giữ mảng chuỗi
+    private PermissionBits permissionBits(Set<String> permissions) {
+        return jwtProperties.isPermissionBitmap() && permissions != null
+                ? permissionRegistry.current().encode(permissions)
+                : null;
+    }
+
+    private void writeAccessClaims(JwtIssuer.ClaimsWriter w, String username, UUID uid,
+                                   Set<String> roles, Set<String> permissions, PermissionBits bits, long now) {
+        w.string("jti", randomId())
+                .string("sub", username)
+                .string(TOKEN_USE_CLAIM, ACCESS_TOKEN_USE)
+                .string("uid", uid != null ? uid.toString() : null)
+                .array("roles", roles);
+        if (bits != null) {
+            w.string(PERMISSION_VERSION_CLAIM, bits.getCatalog().getVersion())
+                    .string(PERMISSION_BITMAP_CLAIM, Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray()));
+        } else {
+            w.array("permissions", permissions);
+        }
+        w.number("iat", now)
+                .number("exp", now + jwtProperties.getExpiration() / 1000);
+    }
+
+    // jti giúp 2 refresh token cùng user cùng giây không trùng token_hash
+    private void writeRefreshClaims(JwtIssuer.ClaimsWriter w, String username, long now) {
+        w.string("jti", randomId())
+                .string("sub", username)
+                .string(TOKEN_USE_CLAIM, REFRESH_TOKEN_USE)
+                .number("iat", now)
+                .number("exp", now + jwtProperties.getRefreshExpiration() / 1000);
+    }
+
+    private static long epochSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    // UUID v4 từ ThreadLocalRandom: jti chỉ cần duy nhất, không cần SecureRandom (chữ ký đã bảo vệ token)
+    private static String randomId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+
+    private Key resolveVerificationKey(String kid) {
+        if (kid == null) {
+            if (acceptsHs256()) return secretKey;
+            throw new SignatureException("HS256 tokens are no longer accepted");
+        }
+        return jwtKeyManager.verificationKey(kid)
+                .orElseThrow(() -> new SignatureException("Unknown signing key " + kid));
+    }
+
+    // Chế độ HS256 luôn nhận; sau khi chuyển ES256 chỉ nhận trong giai đoạn chuyển tiếp
+    // (jwt.legacy-hs256-until, mặc định lúc khởi động + expiration)
+    private boolean acceptsHs256() {
+        if (!jwtKeyManager.isEnabled()) return true;
+        Instant until = jwtProperties.getLegacyHs256Until();
+        return Instant.now().isBefore(until != null ? until : defaultHs256Until);
+    }
+
+    /**
+     * Khoá đã ký token còn được chấp nhận không (không truy vấn DB): kid còn trong bộ khoá đã nạp,
+     * token HS256 còn trong giai đoạn chuyển tiếp. Dùng cho token lấy từ VerifiedTokenCache
+     */
+    public boolean acceptsSigningKey(String kid) {
+        return kid == null ? acceptsHs256() : jwtKeyManager.isKnownKey(kid);
+    }
+
+    /**
+     * Verify access token trong 1 lần parse: chữ ký, hạn dùng (parser tự ném ExpiredJwtException), subject và token_use.
+     * Ném JwtException nếu token không hợp lệ
+     */
+    public VerifiedToken verify(String token) {
+        Jws<Claims> jws = jwtParser.parseClaimsJws(token);
+        Claims claims = jws.getBody();
+        String kid = jws.getHeader().getKeyId();
+        if (claims.getSubject() == null || claims.getSubject().isEmpty()) {
+            throw new MalformedJwtException("Token has no subject");
+        }
+        // Refresh token không dùng làm bearer; token cũ chưa có token_use: refresh token là token không có roles
+        String tokenUse = claims.get(TOKEN_USE_CLAIM, String.class);
+        if (tokenUse != null ? !ACCESS_TOKEN_USE.equals(tokenUse) : !claims.containsKey("roles")) {
+            throw new UnsupportedJwtException("Not an access token");
+        }
+
+        String bitmap = claims.get(PERMISSION_BITMAP_CLAIM, String.class);
+        if (bitmap == null) {
+            return VerifiedToken.from(claims, kid, null, false);
+        }
+        PermissionBits bits = permissionRegistry.byVersion(claims.get(PERMISSION_VERSION_CLAIM, String.class))
+                .map(catalog -> catalog.decode(Base64.getUrlDecoder().decode(bitmap)))
+                .orElse(null);
+        return VerifiedToken.from(claims, kid, bits, true);
     }
 
     // Lấy username từ token
@@ -53,22 +222,14 @@ public class JwtService {
     // Kiểm tra token có hợp lệ không
     public boolean validateToken(String token, String username) {
         try {
-            return extractUsername(token).equals(username) && !isTokenExpired(token);
+            return verify(token).getSubject().equals(username);
         } catch (JwtException e) {
             return false;
         }
     }
 
-    // Helpers
-    private boolean isTokenExpired(String token) {
-        return parseClaims(token).getExpiration().before(new Date());
-    }
-
-
     public Claims parseClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -0,0 +1,146 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Write-behind cho lastLogin / failedAttempts: gom thay đổi theo user trong bộ nhớ,
+ * flush thành batch UPDATE từng phần theo chu kỳ và khi shutdown.
+ * Login không còn chờ ghi dòng users; trạng thái khoá (lockedUntil) vẫn được ghi đồng bộ bởi AuthService
+ */
+@Slf4j
+@Service
+public class LoginStateBuffer {
+
+    // Có login thành công: ghi đè failed_attempts và bỏ khoá đã hết hạn.
+    // Khoá còn hiệu lực được ghi sau lần login này (lockUser ở node này hoặc node khác) thì giữ nguyên
+    private static final String FLUSH_RESET_SQL =
+            "UPDATE users SET last_login = COALESCE(?, last_login), failed_attempts = ?, "
+                    + "locked_until = CASE WHEN locked_until > ? THEN locked_until END WHERE id = ?";
+
+    // Chỉ có login lỗi: cộng dồn nguyên tử để không mất update giữa các node
+    private static final String FLUSH_INCREMENT_SQL =
+            "UPDATE users SET last_login = COALESCE(?, last_login), failed_attempts = COALESCE(failed_attempts, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, PendingState> pending = new ConcurrentHashMap<>();
+    private final Counter flushedRows;
+    private final Counter requeued;
+
+    public LoginStateBuffer(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushedRows = Counter.builder("auth.login_state.flushed")
+                .description("Coalesced user rows written by the login write-behind buffer")
+                .register(meterRegistry);
+        this.requeued = Counter.builder("auth.login_state.requeued")
+                .description("Rows put back into the buffer after a failed flush")
+                .register(meterRegistry);
+        Gauge.builder("auth.login_state.pending", pending, Map::size)
+                .register(meterRegistry);
+    }
+
+    // Login thành công: lastLogin = now, failedAttempts = 0, bỏ khoá
+    public void recordSuccess(Long userId) {
+        pending.compute(userId, (id, s) -> new PendingState(LocalDateTime.now(), true, 0));
+    }
+
+    /**
+     * Login lỗi: tăng số lần lỗi trong bộ nhớ, trả về số lần lỗi hiệu lực (DB + chưa flush)
+     */
+    public int recordFailure(User user) {
+        PendingState state = pending.compute(user.getId(), (id, s) -> s == null
+                ? new PendingState(null, false, 1)
+                : new PendingState(s.lastLogin(), s.reset(), s.failedDelta() + 1));
+        return effectiveFailedAttempts(user, state);
+    }
+
+    // Đã khoá đồng bộ (failed_attempts = 0 trong DB): bỏ số lần lỗi đang chờ, giữ lastLogin
+    public void discardFailures(Long userId) {
+        pending.computeIfPresent(userId, (id, s) -> new PendingState(s.lastLogin(), false, 0));
+    }
+
+    // Số lần lỗi hiệu lực = giá trị DB (hoặc 0 nếu đã reset) + phần chưa flush
+    public int failedAttempts(User user) {
+        return effectiveFailedAttempts(user, pending.get(user.getId()));
+    }
+
+    private static int effectiveFailedAttempts(User user, PendingState state) {
+        int persisted = user.getFailedAttempts() != null ? user.getFailedAttempts() : 0;
+        if (state == null) return persisted;
+        return (state.reset() ? 0 : persisted) + state.failedDelta();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.loginStateFlushMs:1000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, PendingState> resets = new HashMap<>();
+        Map<Long, PendingState> increments = new HashMap<>();
+        for (Long userId : pending.keySet()) {
+            PendingState s = pending.remove(userId);
+            if (s == null) continue;
+            (s.reset() ? resets : increments).put(userId, s);
+        }
+
+        int written = write(FLUSH_RESET_SQL, resets, (id, s) -> new Object[]{lastLogin(s), s.failedDelta(), now, id})
+                + write(FLUSH_INCREMENT_SQL, increments, (id, s) -> new Object[]{lastLogin(s), s.failedDelta(), id});
+
+        flushedRows.increment(written);
+        log.debug("Login state flushed: {} reset, {} increment", resets.size(), increments.size());
+    }
+
+    // Batch lỗi (DB tạm thời không sẵn sàng): đưa lại vào buffer, gộp với thay đổi mới phát sinh trong lúc flush
+    private int write(String sql, Map<Long, PendingState> states, BiFunction<Long, PendingState, Object[]> args) {
+        if (states.isEmpty()) return 0;
+        List<Object[]> batch = new ArrayList<>(states.size());
+        states.forEach((id, s) -> batch.add(args.apply(id, s)));
+        try {
+            jdbcTemplate.batchUpdate(sql, batch);
+            return batch.size();
+        } catch (DataAccessException e) {
+            states.forEach((id, s) -> pending.merge(id, s, (newer, older) -> older.then(newer)));
+            requeued.increment(states.size());
+            log.warn("Login state flush failed, re-queued {} rows", states.size(), e);
+            return 0;
+        }
+    }
+
+    private static Timestamp lastLogin(PendingState s) {
+        return s.lastLogin() != null ? Timestamp.valueOf(s.lastLogin()) : null;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private record PendingState(LocalDateTime lastLogin, boolean reset, int failedDelta) {
+
+        // Áp thay đổi mới hơn lên trạng thái cũ (chưa ghi được)
+        PendingState then(PendingState newer) {
+            if (newer.reset()) return newer;
+            return new PendingState(
+                    newer.lastLogin() != null ? newer.lastLogin() : lastLogin,
+                    reset,
+                    failedDelta + newer.failedDelta());
+        }
+    }
+}
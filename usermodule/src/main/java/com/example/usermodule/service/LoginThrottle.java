@@ -0,0 +1,123 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.LoginThrottleProperties;
+import com.example.usermodule.data.request.AuthProperties;
+import com.example.usermodule.exception.TooManyRequestsException;
+import com.example.usermodule.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giới hạn login lỗi theo cửa sổ trượt, theo username và theo IP client.
+ * Kiểm tra hoàn toàn trong bộ nhớ nên burst bị chặn trước khi chạm DB hoặc bcrypt
+ */
+@Service
+public class LoginThrottle {
+
+    private final AuthProperties authProperties;
+    private final LoginThrottleProperties properties;
+
+    private final Map<String, SlidingWindowCounter>[] userStripes;
+    private final Map<String, SlidingWindowCounter>[] ipStripes;
+
+    private final Counter rejectedUser;
+    private final Counter rejectedIp;
+    private final Counter untracked;
+
+    @SuppressWarnings("unchecked")
+    public LoginThrottle(AuthProperties authProperties,
+                         LoginThrottleProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.authProperties = authProperties;
+        this.properties = properties;
+        this.userStripes = new Map[properties.getStripes()];
+        this.ipStripes = new Map[properties.getStripes()];
+        for (int i = 0; i < properties.getStripes(); i++) {
+            userStripes[i] = new ConcurrentHashMap<>();
+            ipStripes[i] = new ConcurrentHashMap<>();
+        }
+
+        this.rejectedUser = Counter.builder("auth.login.throttled").tag("key", "username").register(meterRegistry);
+        this.rejectedIp = Counter.builder("auth.login.throttled").tag("key", "ip").register(meterRegistry);
+        this.untracked = Counter.builder("auth.login.throttle.untracked")
+                .description("Failures not tracked because the stripe was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ném TooManyRequestsException nếu username hoặc IP đã vượt ngưỡng lỗi trong cửa sổ
+     */
+    public void checkAllowed(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+
+        SlidingWindowCounter user = stripe(userStripes, username).get(username);
+        if (user != null && user.count(now) >= authProperties.getMaxFailedAttempts()) {
+            rejectedUser.increment();
+            throw new TooManyRequestsException("Too many failed attempts, please try again later");
+        }
+
+        if (clientIp != null) {
+            SlidingWindowCounter ip = stripe(ipStripes, clientIp).get(clientIp);
+            if (ip != null && ip.count(now) >= properties.getIpMaxFailures()) {
+                rejectedIp.increment();
+                throw new TooManyRequestsException("Too many failed attempts, please try again later");
+            }
+        }
+    }
+
+    /**
+     * Ghi nhận 1 lần lỗi, trả về số lần lỗi của username trong cửa sổ
+     */
+    public int recordFailure(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (clientIp != null) {
+            SlidingWindowCounter ip = counter(ipStripes, clientIp, properties.getIpWindowSeconds());
+            if (ip != null) ip.increment(now);
+        }
+
+        SlidingWindowCounter user = counter(userStripes, username, properties.getUserWindowSeconds());
+        return user != null ? user.increment(now) : 0;
+    }
+
+    // Login thành công: xoá lịch sử lỗi của username (không xoá theo IP)
+    public void recordSuccess(String username) {
+        SlidingWindowCounter user = stripe(userStripes, username).remove(username);
+        if (user != null) user.reset();
+    }
+
+    // Dọn key không còn lỗi nào trong cửa sổ
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < userStripes.length; i++) {
+            userStripes[i].values().removeIf(c -> c.count(now) == 0);
+            ipStripes[i].values().removeIf(c -> c.count(now) == 0);
+        }
+    }
+
+    private SlidingWindowCounter counter(Map<String, SlidingWindowCounter>[] stripes, String key, long windowSeconds) {
+        Map<String, SlidingWindowCounter> stripe = stripe(stripes, key);
+        SlidingWindowCounter counter = stripe.get(key);
+        if (counter != null) return counter;
+
+        if (stripe.size() >= properties.getMaxKeysPerStripe()) {
+            long now = System.currentTimeMillis();
+            stripe.values().removeIf(c -> c.count(now) == 0);
+            if (stripe.size() >= properties.getMaxKeysPerStripe()) {
+                untracked.increment();
+                return null;
+            }
+        }
+        return stripe.computeIfAbsent(key, k -> new SlidingWindowCounter(windowSeconds * 1000));
+    }
+
+    private static Map<String, SlidingWindowCounter> stripe(Map<String, SlidingWindowCounter>[] stripes, String key) {
+        int h = key.hashCode();
+        return stripes[((h ^ (h >>> 16)) & 0x7fffffff) % stripes.length];
+    }
+}
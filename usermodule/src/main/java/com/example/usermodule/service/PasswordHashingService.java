@@ -0,0 +1,144 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.config.jfr.JfrEvents;
+import com.example.usermodule.config.jfr.PasswordCheckEvent;
+import com.example.usermodule.data.pojo.PasswordHashingProperties;
+import com.example.usermodule.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy bcrypt trên pool riêng có giới hạn thay vì trên thread Tomcat.
+ * Hàng đợi đầy thì ném ServiceBusyException (503) ngay, không để login burst chiếm hết servlet thread
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    // Password hash không dùng được (tài khoản SSO), matches() luôn false và không tốn bcrypt
+    public static final String UNUSABLE_PASSWORD = "!";
+
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  PasswordHashingProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+
+        int threads = properties.getThreads() > 0
+                ? properties.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        // executor.queued, executor.active, executor.completed ... {name=password-hashing}
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+    }
+
+    // username chỉ dùng cho event JFR (hash), không ảnh hưởng kết quả so khớp
+    public boolean matches(String username, String rawPassword, String passwordHash) {
+        if (rawPassword == null || isUnusable(passwordHash)) {
+            return false;
+        }
+
+        PasswordCheckEvent event = new PasswordCheckEvent();
+        if (!event.isEnabled()) {
+            return submit(() -> passwordEncoder.matches(rawPassword, passwordHash));
+        }
+
+        // Có recording JFR: đo thêm thời gian chờ trong hàng đợi (Future.get đảm bảo thấy giá trị ghi từ pool)
+        event.begin();
+        long submitted = System.nanoTime();
+        try {
+            event.matched = submit(() -> {
+                event.queueWait = System.nanoTime() - submitted;
+                return passwordEncoder.matches(rawPassword, passwordHash);
+            });
+            return event.matched;
+        } catch (ServiceBusyException e) {
+            event.rejected = true;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.usernameHash = JfrEvents.usernameHash(username);
+                event.cost = bcryptCost(passwordHash);
+                event.commit();
+            }
+        }
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // Hash cũ có cost thấp hơn cost hiện tại thì nên hash lại
+    public boolean needsRehash(String passwordHash) {
+        return !isUnusable(passwordHash) && passwordEncoder.upgradeEncoding(passwordHash);
+    }
+
+    public static boolean isUnusable(String passwordHash) {
+        return passwordHash == null || passwordHash.startsWith(UNUSABLE_PASSWORD);
+    }
+
+    // $2a$10$... -> 10; -1 nếu không phải bcrypt
+    private static int bcryptCost(String passwordHash) {
+        if (passwordHash.length() < 7 || passwordHash.charAt(0) != '$' || passwordHash.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(passwordHash, 4, 6, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Password hashing queue full ({}), rejecting request", executor.getQueue().size());
+            throw new ServiceBusyException("Server is busy, please retry");
+        }
+
+        try {
+            return future.get(properties.getWaitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceBusyException("Server is busy, please retry");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Request interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.Permission;
+import com.example.usermodule.data.pojo.PermissionCatalog;
+import com.example.usermodule.repository.PermissionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Giữ PermissionCatalog hiện tại (nạp từ bảng permissions) và vài version gần nhất,
+ * để token phát ra trước khi danh sách permission đổi vẫn giải mã được bitmap
+ */
+@Slf4j
+@Component
+public class PermissionRegistry {
+
+    private static final int MAX_VERSIONS = 8;
+
+    private final PermissionRepository permissionRepository;
+
+    private volatile PermissionCatalog current = PermissionCatalog.EMPTY;
+    private volatile Map<String, PermissionCatalog> versions = Map.of();
+
+    public PermissionRegistry(PermissionRepository permissionRepository) {
+        this.permissionRepository = permissionRepository;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${jwt.permission-registry-refresh-ms:60000}")
+    public void refresh() {
+        PermissionCatalog catalog;
+        try {
+            catalog = new PermissionCatalog(permissionRepository.findAll(Sort.by("id")).stream()
+                    .map(Permission::getCode)
+                    .toList());
+        } catch (Exception e) {
+            log.warn("Permission registry refresh failed, keeping version {}: {}", current.getVersion(), e.getMessage());
+            return;
+        }
+        if (catalog.getVersion().equals(current.getVersion())) return;
+
+        // Copy-on-write, chỉ thread scheduler ghi
+        LinkedHashMap<String, PermissionCatalog> next = new LinkedHashMap<>(versions);
+        next.put(catalog.getVersion(), catalog);
+        while (next.size() > MAX_VERSIONS) {
+            next.remove(next.keySet().iterator().next());
+        }
+        versions = next;
+        current = catalog;
+        log.info("Permission registry version {} ({} permissions)", catalog.getVersion(), catalog.getCodes().size());
+    }
+
+    public PermissionCatalog current() {
+        return current;
+    }
+
+    public Optional<PermissionCatalog> byVersion(String version) {
+        return version != null ? Optional.ofNullable(versions.get(version)) : Optional.empty();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.response.BulkAssignmentResult;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Đồng bộ user_roles / role_permissions theo diff: đọc trạng thái hiện tại của mọi owner
+ * bằng 1 query, chỉ ghi các cặp thêm / bớt bằng JDBC batch trong 1 transaction.
+ * Owner có thay đổi bị xoá khỏi RbacCache sau commit
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RbacBulkAssignmentService {
+
+    private static final Link USER_ROLES = new Link("user_roles", "user_id", "role_id");
+    private static final Link ROLE_PERMISSIONS = new Link("role_permissions", "role_id", "permission_id");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RbacCache rbacCache;
+
+    // userId -> danh sách roleId mong muốn (thay thế toàn bộ role hiện tại của user)
+    @Transactional
+    public BulkAssignmentResult syncUserRoles(Map<Long, ? extends Collection<Long>> assignments) {
+        return sync(USER_ROLES, assignments, rbacCache::evictUserAfterCommit);
+    }
+
+    // roleId -> danh sách permissionId mong muốn
+    @Transactional
+    public BulkAssignmentResult syncRolePermissions(Map<Long, ? extends Collection<Long>> assignments) {
+        return sync(ROLE_PERMISSIONS, assignments, rbacCache::evictRoleAfterCommit);
+    }
+
+    private BulkAssignmentResult sync(Link link,
+                                      Map<Long, ? extends Collection<Long>> assignments,
+                                      Consumer<Long> evict) {
+        long start = System.nanoTime();
+        if (assignments.isEmpty()) {
+            return BulkAssignmentResult.builder().build();
+        }
+
+        // 1. Trạng thái hiện tại của mọi owner trong 1 query
+        Map<Long, Set<Long>> current = loadCurrent(link, assignments.keySet());
+        long loaded = System.nanoTime();
+
+        // 2. Diff
+        List<long[]> toAdd = new ArrayList<>();
+        List<long[]> toRemove = new ArrayList<>();
+        Set<Long> changedOwners = new HashSet<>();
+        int unchanged = 0;
+        for (Map.Entry<Long, ? extends Collection<Long>> entry : assignments.entrySet()) {
+            Long owner = entry.getKey();
+            Set<Long> desired = entry.getValue() != null ? new HashSet<>(entry.getValue()) : Set.of();
+            Set<Long> existing = current.getOrDefault(owner, Set.of());
+
+            for (Long member : desired) {
+                if (existing.contains(member)) {
+                    unchanged++;
+                } else {
+                    toAdd.add(new long[]{owner, member});
+                    changedOwners.add(owner);
+                }
+            }
+            for (Long member : existing) {
+                if (!desired.contains(member)) {
+                    toRemove.add(new long[]{owner, member});
+                    changedOwners.add(owner);
+                }
+            }
+        }
+        long diffed = System.nanoTime();
+
+        // 3. Chỉ ghi phần chênh lệch
+        if (!toRemove.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "DELETE FROM " + link.table + " WHERE " + link.ownerColumn + " = ? AND " + link.memberColumn + " = ?",
+                    toRemove, 1000, (ps, pair) -> {
+                        ps.setLong(1, pair[0]);
+                        ps.setLong(2, pair[1]);
+                    });
+        }
+        if (!toAdd.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO " + link.table + " (" + link.ownerColumn + ", " + link.memberColumn + ") VALUES (?, ?)",
+                    toAdd, 1000, (ps, pair) -> {
+                        ps.setLong(1, pair[0]);
+                        ps.setLong(2, pair[1]);
+                    });
+        }
+        changedOwners.forEach(evict);
+        long written = System.nanoTime();
+
+        BulkAssignmentResult result = BulkAssignmentResult.builder()
+                .owners(assignments.size())
+                .changedOwners(changedOwners.size())
+                .added(toAdd.size())
+                .removed(toRemove.size())
+                .unchanged(unchanged)
+                .loadMillis(toMillis(loaded - start))
+                .diffMillis(toMillis(diffed - loaded))
+                .writeMillis(toMillis(written - diffed))
+                .totalMillis(toMillis(written - start))
+                .build();
+        log.info("RBAC sync {}: {}", link.table, result);
+        return result;
+    }
+
+    private Map<Long, Set<Long>> loadCurrent(Link link, Set<Long> owners) {
+        Map<Long, Set<Long>> current = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT " + link.ownerColumn + ", " + link.memberColumn + " FROM " + link.table +
+                    " WHERE " + link.ownerColumn + " = ANY (?)");
+            Array ids = con.createArrayOf("bigint", owners.toArray());
+            ps.setArray(1, ids);
+            return ps;
+        }, rs -> {
+            current.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getLong(2));
+        });
+        return current;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private record Link(String table, String ownerColumn, String memberColumn) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.Permission;
+import com.example.usermodule.data.entity.Role;
+import com.example.usermodule.repository.RolePermissionRepository;
+import com.example.usermodule.repository.UserRoleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Cache RBAC trong process, 2 tầng:
+ * - role -> permission codes (từ RolePermissionRepository)
+ * - user -> roles (id + name)
+ * Bị xoá đúng lúc các thao tác gán role/permission commit (xem evict*AfterCommit)
+ */
+@Slf4j
+@Component
+public class RbacCache {
+
+    private static final long MAX_USERS = 100_000;
+    private static final long MAX_ROLES = 1_000;
+
+    private final UserRoleRepository userRoleRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+
+    private final Cache<Long, Set<String>> rolePermissions;
+    private final Cache<Long, Map<Long, String>> userRoles;
+
+    // Tăng mỗi lần invalidate; kết quả load đọc trước khi commit xong sẽ không được put vào cache
+    private final AtomicLong roleGeneration = new AtomicLong();
+    private final AtomicLong userGeneration = new AtomicLong();
+
+    private final AtomicLong roleInvalidations = new AtomicLong();
+    private final AtomicLong userInvalidations = new AtomicLong();
+
+    public RbacCache(UserRoleRepository userRoleRepository,
+                     RolePermissionRepository rolePermissionRepository,
+                     MeterRegistry meterRegistry) {
+        this.userRoleRepository = userRoleRepository;
+        this.rolePermissionRepository = rolePermissionRepository;
+        this.rolePermissions = Caffeine.newBuilder().maximumSize(MAX_ROLES).recordStats().build();
+        this.userRoles = Caffeine.newBuilder().maximumSize(MAX_USERS).recordStats().build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, rolePermissions, "rbac.role-permissions");
+        CaffeineCacheMetrics.monitor(meterRegistry, userRoles, "rbac.user-roles");
+        FunctionCounter.builder("rbac.invalidations", roleInvalidations, AtomicLong::get)
+                .tag("level", "role")
+                .register(meterRegistry);
+        FunctionCounter.builder("rbac.invalidations", userInvalidations, AtomicLong::get)
+                .tag("level", "user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lấy role names + permission codes của user, chỉ truy vấn DB khi cache miss
+     */
+    public UserRbac resolve(Long userId) {
+        Map<Long, String> roles = rolesOf(userId);
+
+        Set<String> permissions = new HashSet<>();
+        for (Long roleId : roles.keySet()) {
+            permissions.addAll(permissionsOfRole(roleId));
+        }
+        return new UserRbac(Set.copyOf(roles.values()), Set.copyOf(permissions));
+    }
+
+    /**
+     * Trả về RBAC của user nếu cả 2 tầng đều đã có trong cache (không truy vấn DB)
+     */
+    public Optional<UserRbac> getIfPresent(Long userId) {
+        Map<Long, String> roles = userRoles.getIfPresent(userId);
+        if (roles == null) return Optional.empty();
+
+        Set<String> permissions = new HashSet<>();
+        for (Long roleId : roles.keySet()) {
+            Set<String> perms = rolePermissions.getIfPresent(roleId);
+            if (perms == null) return Optional.empty();
+            permissions.addAll(perms);
+        }
+        return Optional.of(new UserRbac(Set.copyOf(roles.values()), Set.copyOf(permissions)));
+    }
+
+    // Đọc trước khi query để putUserRoles bỏ qua kết quả cũ nếu có invalidate xen giữa
+    public long userGeneration() {
+        return userGeneration.get();
+    }
+
+    public long roleGeneration() {
+        return roleGeneration.get();
+    }
+
+    /**
+     * Nạp role -> permissions từ kết quả đã query sẵn (UserRepository.findUserDetail)
+     */
+    public void putRolePermissions(Long roleId, Set<String> permissions, long generation) {
+        if (roleGeneration.get() == generation) {
+            rolePermissions.put(roleId, Set.copyOf(permissions));
+        }
+    }
+
+    /**
+     * Nạp user -> roles từ kết quả đã query sẵn (vd. UserRepository.findUserDetail)
+     */
+    public void putUserRoles(Long userId, Map<Long, String> roles, long generation) {
+        if (userGeneration.get() == generation) {
+            userRoles.put(userId, Map.copyOf(roles));
+        }
+    }
+
+    public Set<String> permissionsOfRole(Long roleId) {
+        Set<String> cached = rolePermissions.getIfPresent(roleId);
+        if (cached != null) return cached;
+
+        long generation = roleGeneration.get();
+        Set<String> loaded = rolePermissionRepository.findPermissionsByRoleId(roleId).stream()
+                .map(Permission::getCode)
+                .collect(Collectors.toUnmodifiableSet());
+        if (roleGeneration.get() == generation) {
+            rolePermissions.put(roleId, loaded);
+        }
+        return loaded;
+    }
+
+    private Map<Long, String> rolesOf(Long userId) {
+        Map<Long, String> cached = userRoles.getIfPresent(userId);
+        if (cached != null) return cached;
+
+        long generation = userGeneration.get();
+        Map<Long, String> loaded = userRoleRepository.findRoleEntitiesByUserId(userId).stream()
+                .collect(Collectors.toUnmodifiableMap(Role::getId, Role::getName, (a, b) -> a));
+        if (userGeneration.get() == generation) {
+            userRoles.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    // Xoá cache user -> roles sau khi transaction hiện tại commit
+    public void evictUserAfterCommit(Long userId) {
+        afterCommit(() -> {
+            userGeneration.incrementAndGet();
+            userRoles.invalidate(userId);
+            userInvalidations.incrementAndGet();
+            log.debug("RBAC cache evicted for userId={}", userId);
+        });
+    }
+
+    // Xoá cache role -> permissions sau khi transaction hiện tại commit
+    public void evictRoleAfterCommit(Long roleId) {
+        afterCommit(() -> {
+            roleGeneration.incrementAndGet();
+            rolePermissions.invalidate(roleId);
+            roleInvalidations.incrementAndGet();
+            log.debug("RBAC cache evicted for roleId={}", roleId);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            // Không có transaction: thay đổi đã commit ngay
+            action.run();
+        }
+    }
+
+    @Value
+    public static class UserRbac {
+        Set<String> roles;
+        Set<String> permissions;
+    }
+}
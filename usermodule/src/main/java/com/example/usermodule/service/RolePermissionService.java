@@ -6,22 +6,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class RolePermissionService {
 
     private final RolePermissionRepository rolePermissionRepository;
+    private final RbacBulkAssignmentService rbacBulkAssignmentService;
 
+    // Chỉ ghi permission thêm / bớt so với hiện tại (xem RbacBulkAssignmentService)
     @Transactional
     public void assignPermissionsToRole(Long roleId, List<Long> permissionIds) {
-        // Xóa hết permission cũ của role
-        rolePermissionRepository.deleteByRoleId(roleId);
-
-        // Thêm mới
-        for (Long pid : permissionIds) {
-            rolePermissionRepository.addPermissionToRole(roleId, pid);
-        }
+        rbacBulkAssignmentService.syncRolePermissions(Map.of(roleId, permissionIds));
     }
 
     public List<Long> getPermissionsOfRole(Long roleId) {
@@ -2,35 +2,26 @@ package com.example.usermodule.service;
 
 import com.example.usermodule.data.entity.RolePermission;
 import com.example.usermodule.repository.RolePermissionRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class RoleService {
 
     private final RolePermissionRepository rolePermissionRepository;
+    private final RbacBulkAssignmentService rbacBulkAssignmentService;
 
     /**
-     * Gán permission cho role (overwrite)
+     * Gán permission cho role (overwrite, chỉ ghi phần thay đổi)
      */
+    @Transactional
     public void assignPermissionsToRole(Long roleId, List<Long> permissionIds) {
-        // Xóa hết permission cũ
-        rolePermissionRepository.deleteByRoleId(roleId);
-
-        // Thêm permission mới
-        List<RolePermission> newRolePerms = permissionIds.stream()
-                .map(pid -> {
-                    RolePermission rp = new RolePermission();
-                    rp.setRoleId(roleId);
-                    rp.setPermissionId(pid);
-                    return rp;
-                }).collect(Collectors.toList());
-
-        rolePermissionRepository.saveAll(newRolePerms);
+        rbacBulkAssignmentService.syncRolePermissions(Map.of(roleId, permissionIds));
     }
 
     /**
@@ -0,0 +1,157 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.TokenCompactionProperties;
+import com.example.usermodule.repository.UserTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dọn user_tokens: xoá token hết hạn/đã revoke theo batch có giới hạn và nghỉ giữa các batch.
+ * Nếu bảng đã partition theo tháng (expires_at) thì tạo trước partition tương lai và drop nguyên partition cũ
+ */
+@Slf4j
+@Service
+public class TokenCompactionService {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final UserTokenRepository userTokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenCompactionProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final Counter deletedCounter;
+    private final Counter batchCounter;
+    private final Counter droppedPartitionCounter;
+    private final Timer runTimer;
+
+    public TokenCompactionService(UserTokenRepository userTokenRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  TokenCompactionProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.userTokenRepository = userTokenRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+
+        this.deletedCounter = Counter.builder("user_tokens.compaction.deleted")
+                .description("Rows deleted by token compaction")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("user_tokens.compaction.batches")
+                .register(meterRegistry);
+        this.droppedPartitionCounter = Counter.builder("user_tokens.compaction.partitions.dropped")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("user_tokens.compaction.run")
+                .register(meterRegistry);
+        Gauge.builder("user_tokens.compaction.last_run.deleted", lastRunDeleted, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${token.compaction.interval-ms:3600000}",
+            initialDelayString = "${token.compaction.interval-ms:3600000}")
+    public void scheduledCompaction() {
+        if (!properties.isEnabled()) return;
+        compact();
+    }
+
+    /**
+     * Chạy 1 lượt compaction, trả về số dòng đã xoá. Bỏ qua nếu lượt trước chưa xong
+     */
+    public long compact() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Token compaction already running, skipped");
+            return 0;
+        }
+        try {
+            return runTimer.record(this::doCompact);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long doCompact() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(properties.getRetentionHours());
+
+        if (properties.isPartitioned()) {
+            maintainPartitions(cutoff);
+        }
+
+        long total = 0;
+        for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+            int deleted = userTokenRepository.deleteCompactableBatch(cutoff, properties.getBatchSize());
+            batchCounter.increment();
+            deletedCounter.increment(deleted);
+            total += deleted;
+
+            if (deleted < properties.getBatchSize()) break;
+
+            if (!pause()) break;
+        }
+
+        lastRunDeleted.set(total);
+        log.info("Token compaction removed {} rows (cutoff={})", total, cutoff);
+        return total;
+    }
+
+    // Tạo trước partition cho các tháng tới, drop partition có expires_at hoàn toàn trước cutoff
+    private void maintainPartitions(LocalDateTime cutoff) {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS user_tokens_" + month.format(PARTITION_SUFFIX)
+                    + " PARTITION OF user_tokens FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        }
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'user_tokens'
+                """, String.class);
+
+        for (String partition : partitions) {
+            YearMonth month = parsePartitionMonth(partition);
+            // Partition tháng M chứa expires_at < đầu tháng M+1, drop khi cận trên đã qua cutoff
+            if (month != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                droppedPartitionCounter.increment();
+                log.info("Dropped expired token partition {}", partition);
+            }
+        }
+    }
+
+    private static YearMonth parsePartitionMonth(String partition) {
+        try {
+            return YearMonth.parse(partition.substring("user_tokens_".length()), PARTITION_SUFFIX);
+        } catch (RuntimeException e) {
+            // Partition không theo quy ước tên (vd. default) thì bỏ qua
+            return null;
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,26 +1,21 @@
 package com.example.usermodule.service;
 
-import com.example.usermodule.repository.UserRoleRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class UserRoleService {
 
-    private final UserRoleRepository userRoleRepository;
+    private final RbacBulkAssignmentService rbacBulkAssignmentService;
 
+    // Chỉ ghi role thêm / bớt so với hiện tại (xem RbacBulkAssignmentService)
     @Transactional
     public void assignRolesToUser(Long userId, List<Long> roleIds) {
-        // Xóa hết role cũ
-        userRoleRepository.deleteByUserId(userId);
-
-        // Thêm mới
-        for (Long roleId : roleIds) {
-            userRoleRepository.addRoleToUser(userId, roleId);
-        }
+        rbacBulkAssignmentService.syncUserRoles(Map.of(userId, roleIds));
     }
 }
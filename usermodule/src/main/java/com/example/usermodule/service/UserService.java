@@ -1,8 +1,11 @@
 package com.example.usermodule.service;
 
-import com.example.usermodule.data.entity.UserToken;
+import com.example.usermodule.data.entity.User;
+import com.example.usermodule.data.pojo.JwtPrincipal;
 import com.example.usermodule.data.pojo.UserDTO;
+import com.example.usermodule.data.pojo.UserProfileView;
 import com.example.usermodule.repository.*;
+import com.example.usermodule.util.TokenDigest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -13,50 +16,93 @@ import java.util.*;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final UserProfileRepository userProfileRepository;
-    private final UserRoleRepository userRoleRepository;
+    private final RbacCache rbacCache;
     private final UserTokenRepository userTokenRepository;
 
     /**
-     * Lấy thông tin user đầy đủ (profile + roles + permissions + tokens)
+     * Lấy thông tin user (profile + roles + permissions), không kèm active tokens
      */
     public Optional<UserDTO> getUserDetail(Long userId) {
-        return userRepository.findById(userId).map(user -> {
-
-            // profile
-            var profileOpt = userProfileRepository.findByUserId(userId);
-            String name = profileOpt.map(p -> p.getName()).orElse(null);
-            String avatar = profileOpt.map(p -> p.getAvatar()).orElse(null);
-
-            // roles
-            Set<String> roles = userRoleRepository.findRolesByUserId(userId);
-            if (roles.isEmpty()) roles.add("USER"); // default role
-
-            // permissions
-            Set<String> permissions = userRoleRepository.findPermissionsByUserId(userId);
-            if (permissions == null) permissions = Collections.emptySet();
-
-            // active refresh tokens
-            List<String> activeTokens = userTokenRepository.findActiveTokensByUserId(userId)
-                    .stream()
-                    .map(UserToken::getRefreshToken)
-                    .toList();
-
-            // build DTO
-            UserDTO dto = UserDTO.builder()
-                    .id(user.getId())
-                    .username(user.getUsername())
-                    .email(user.getEmail())
-                    .phone(user.getPhone())
-                    .lastLogin(user.getLastLogin())
-                    .name(name)
-                    .avatar(avatar)
-                    .roles(roles)
-                    .permissions(permissions)
-                    .activeTokens(activeTokens)
-                    .build();
-
-            return dto;
+        return getUserDetail(userId, false);
+    }
+
+    /**
+     * Lấy thông tin user trong 1 round-trip:
+     * - RBAC đã có trong RbacCache: chỉ query user + profile
+     * - Chưa có: 1 statement gom luôn roles + permissions từng role, đồng thời nạp cả 2 tầng cache
+     * Active refresh tokens (dạng hex digest) chỉ load khi includeActiveTokens = true
+     */
+    public Optional<UserDTO> getUserDetail(Long userId, boolean includeActiveTokens) {
+        Optional<UserDTO> detail = rbacCache.getIfPresent(userId)
+                .flatMap(rbac -> userRepository.findUserWithProfile(userId)
+                        .map(view -> toDto(view, rbac.getRoles(), rbac.getPermissions())))
+                .or(() -> loadUserDetail(userId));
+
+        if (includeActiveTokens) {
+            detail.ifPresent(dto -> dto.setActiveTokens(
+                    userTokenRepository.findActiveTokensByUserId(userId)
+                            .stream()
+                            .map(t -> TokenDigest.toHex(t.getTokenHash()))
+                            .toList()
+            ));
+        }
+        return detail;
+    }
+
+    private Optional<UserDTO> loadUserDetail(Long userId) {
+        long userGeneration = rbacCache.userGeneration();
+        long roleGeneration = rbacCache.roleGeneration();
+        return userRepository.findUserDetail(userId).map(view -> {
+            Long[] roleIds = view.getRoleIds();
+            String[] roleNames = view.getRoles();
+            Long[] permissionRoleIds = view.getPermissionRoleIds();
+            String[] permissionCodes = view.getPermissionCodes();
+
+            Map<Long, String> roles = new HashMap<>();
+            Map<Long, Set<String>> rolePermissions = new HashMap<>();
+            for (int i = 0; i < roleIds.length; i++) {
+                roles.put(roleIds[i], roleNames[i]);
+                rolePermissions.put(roleIds[i], new HashSet<>());
+            }
+            for (int i = 0; i < permissionRoleIds.length; i++) {
+                rolePermissions.get(permissionRoleIds[i]).add(permissionCodes[i]);
+            }
+
+            Set<String> permissions = new HashSet<>();
+            rolePermissions.forEach((roleId, codes) -> {
+                permissions.addAll(codes);
+                rbacCache.putRolePermissions(roleId, Set.copyOf(codes), roleGeneration);
+            });
+            rbacCache.putUserRoles(userId, roles, userGeneration);
+
+            return toDto(view, Set.copyOf(roles.values()), Set.copyOf(permissions));
         });
     }
-}
\ No newline at end of file
+
+    private UserDTO toDto(UserProfileView view, Set<String> roles, Set<String> permissions) {
+        return UserDTO.builder()
+                .id(view.getId())
+                .username(view.getUsername())
+                .email(view.getEmail())
+                .phone(view.getPhone())
+                .lastLogin(view.getLastLogin())
+                .name(view.getName())
+                .avatar(view.getAvatar())
+                .roles(roles.isEmpty() ? Set.of("USER") : roles) // default role
+                .permissions(permissions)
+                .activeTokens(List.of())
+                .build();
+    }
+
+    /**
+     * Lấy entity User của principal trong SecurityContext.
+     * Ở chế độ stateless principal là JwtPrincipal nên chỉ truy vấn DB khi handler thật sự cần
+     */
+    public Optional<User> resolveUser(Object principal) {
+        if (principal instanceof User user) return Optional.of(user);
+        if (principal instanceof JwtPrincipal jwtPrincipal) {
+            return userRepository.findByUsername(jwtPrincipal.getUsername());
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.config.jfr.JfrEvents;
+import com.example.usermodule.config.jfr.TokenVerifyEvent;
+import com.example.usermodule.data.pojo.JwtPrincipal;
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.PermissionBits;
+import com.example.usermodule.data.pojo.VerifiedToken;
+import com.example.usermodule.repository.UserRepository;
+import com.example.usermodule.util.TokenDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache kết quả verify access token, key = SHA-256 của chuỗi token.
+ * Mỗi entry hết hạn đúng tại claim exp; request lặp lại bỏ qua HMAC + decode claims
+ * nhưng vẫn kiểm tra khoá ký còn được chấp nhận (JwtService.acceptsSigningKey).
+ * Token không hợp lệ không bao giờ được cache
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtService jwtService;
+    private final AuthorityRegistry authorityRegistry;
+    private final PermissionRegistry permissionRegistry;
+    private final UserRepository userRepository;
+    private final RbacCache rbacCache;
+    private final boolean enabled;
+    private final Cache<ByteBuffer, Entry> cache;
+    private final Counter permissionFallbacks;
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              AuthorityRegistry authorityRegistry,
+                              PermissionRegistry permissionRegistry,
+                              UserRepository userRepository,
+                              RbacCache rbacCache,
+                              JwtProperties jwtProperties,
+                              MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.authorityRegistry = authorityRegistry;
+        this.permissionRegistry = permissionRegistry;
+        this.userRepository = userRepository;
+        this.rbacCache = rbacCache;
+        this.enabled = jwtProperties.getCache().isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(jwtProperties.getCache().getMaxSize())
+                .expireAfter(new ExpireAtTokenExp())
+                .recordStats()
+                .build();
+
+        // Expose hit/miss/eviction qua /actuator/metrics/cache.*{cache=jwt.verified-tokens}
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+        this.permissionFallbacks = Counter.builder("jwt.permission_bitmap.fallback")
+                .description("Tokens whose permission bitmap version was unknown and were resolved from RBAC")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verify token, ưu tiên lấy từ cache. Ném JwtException nếu token không hợp lệ
+     */
+    public Entry verify(String token) {
+        TokenVerifyEvent event = new TokenVerifyEvent();
+        event.begin();
+        Entry entry = null;
+        try {
+            entry = verifyCached(token, event);
+            return entry;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.valid = entry != null;
+                event.usernameHash = entry != null ? JfrEvents.usernameHash(entry.getToken().getSubject()) : null;
+                event.commit();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Entry verifyCached(String token, TokenVerifyEvent event) {
+        if (!enabled) {
+            return load(token);
+        }
+
+        ByteBuffer key = ByteBuffer.wrap(TokenDigest.sha256(token));
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            // Entry sống tới exp: kiểm tra lại khoá ký (HS256 quá hạn chuyển tiếp, khoá ES256 đã bị gỡ)
+            if (jwtService.acceptsSigningKey(cached.getToken().getKeyId())) {
+                event.cached = true;
+                return cached;
+            }
+            cache.invalidate(key);
+        }
+
+        // Verify ngoài cache để exception không bị bọc lại
+        Entry entry = load(token);
+        cache.put(key, entry);
+        return entry;
+    }
+
+    private Entry load(String token) {
+        VerifiedToken verified = jwtService.verify(token);
+        if (!verified.isPermissionsResolved()) {
+            verified = resolvePermissions(verified);
+        }
+
+        List<GrantedAuthority> authorities = authorityRegistry.authoritiesFor(verified.getRoles(), verified.getPermissions());
+        if (verified.getPermissionBits() != null) {
+            // Bitset đứng đầu để BitsetAuthorityEvaluator tìm thấy ngay
+            List<GrantedAuthority> withBits = new ArrayList<>(authorities.size() + 1);
+            withBits.add(verified.getPermissionBits());
+            withBits.addAll(authorities);
+            authorities = Collections.unmodifiableList(withBits);
+        }
+        return new Entry(verified, JwtPrincipal.from(verified), authorities);
+    }
+
+    // Version bitmap không còn trong registry (vd. danh sách permission đã đổi): nạp permission hiện tại của user
+    private VerifiedToken resolvePermissions(VerifiedToken verified) {
+        permissionFallbacks.increment();
+        List<String> permissions = userRepository.findByUsername(verified.getSubject())
+                .map(user -> List.copyOf(rbacCache.resolve(user.getId()).getPermissions()))
+                .orElse(List.of());
+        PermissionBits bits = permissionRegistry.current().encode(permissions);
+        return verified.withPermissions(permissions, bits);
+    }
+
+    @Value
+    public static class Entry {
+        VerifiedToken token;
+        JwtPrincipal principal;
+        List<GrantedAuthority> authorities;
+    }
+
+    // Thời gian sống của entry = exp - now, không gia hạn khi đọc
+    private static class ExpireAtTokenExp implements Expiry<ByteBuffer, Entry> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Entry value, long currentTime) {
+            if (value.getToken().getExpiresAt() == null) {
+                return 0;
+            }
+            long remainingMillis = value.getToken().getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Entry value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestOperations;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JWK set của 1 provider, giữ trong bộ nhớ:
+ * - còn mới: trả ngay, không gọi HTTP
+ * - quá refresh: trả bản cũ, nạp lại nền (stale-while-revalidate)
+ * - quá max-stale hoặc chưa có: nạp đồng bộ
+ * - kid không có trong set (provider vừa xoay khoá): nạp lại đồng bộ, tối đa 1 lần / minReload
+ * Nạp lỗi thì giữ bản cũ, lần sau thử lại.
+ * Chỉ 1 thread gọi provider (ReentrantLock, không synchronized: virtual thread chờ lock không giữ carrier)
+ */
+@Slf4j
+class CachedJwkSource implements JWKSource<SecurityContext> {
+
+    private final String registrationId;
+    private final String jwkSetUri;
+    private final RestOperations restOperations;
+    private final Executor refreshExecutor;
+    private final long refreshNanos;
+    private final long maxStaleNanos;
+    private final long minReloadNanos;
+    private final Timer fetchTimer;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile long lastAttemptAt;
+
+    CachedJwkSource(String registrationId, String jwkSetUri, RestOperations restOperations,
+                    Executor refreshExecutor, SsoClientProperties properties, MeterRegistry meterRegistry) {
+        this.registrationId = registrationId;
+        this.jwkSetUri = jwkSetUri;
+        this.restOperations = restOperations;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshNanos = TimeUnit.MINUTES.toNanos(properties.getJwksRefreshMinutes());
+        this.maxStaleNanos = TimeUnit.HOURS.toNanos(properties.getJwksMaxStaleHours());
+        this.minReloadNanos = TimeUnit.MILLISECONDS.toNanos(properties.getJwksMinReloadMs());
+        this.meterRegistry = meterRegistry;
+        this.fetchTimer = Timer.builder("sso.jwks.fetch")
+                .tag("registration", registrationId)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        long now = System.nanoTime();
+        Snapshot current = snapshot;
+
+        if (current == null || now - current.loadedAt > maxStaleNanos) {
+            current = reload(current);
+        } else if (now - current.loadedAt > refreshNanos) {
+            refreshInBackground();
+        }
+
+        List<JWK> keys = selector.select(current.jwkSet);
+        if (keys.isEmpty() && now - lastAttemptAt > minReloadNanos) {
+            // Provider xoay khoá: ID token ký bằng kid mới chưa có trong cache
+            keys = selector.select(reload(current).jwkSet);
+        }
+        return keys;
+    }
+
+    /**
+     * Gọi định kỳ (SsoIdTokenDecoderFactory.refreshStale): nạp nền trước khi login nào phải chờ
+     */
+    void refreshIfStale() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.loadedAt > refreshNanos) {
+            refreshInBackground();
+        }
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) return;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    reload(snapshot);
+                } catch (KeySourceException e) {
+                    log.warn("Background JWKS refresh failed for {}: {}", registrationId, e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    private Snapshot reload(Snapshot seen) throws KeySourceException {
+        try {
+            reloadLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeySourceException("Interrupted while loading JWKS for " + registrationId, e);
+        }
+        try {
+            return fetch(seen);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Gọi khi đang giữ reloadLock
+    private Snapshot fetch(Snapshot seen) throws KeySourceException {
+        // Thread khác vừa nạp xong trong lúc chờ lock
+        if (snapshot != seen && snapshot != null) return snapshot;
+        // Vừa nạp lỗi: không gọi lại provider liên tục, dùng tạm bản cũ
+        if (seen != null && System.nanoTime() - lastAttemptAt < minReloadNanos) return seen;
+
+        lastAttemptAt = System.nanoTime();
+        long start = System.nanoTime();
+        try {
+            String body = restOperations.getForObject(jwkSetUri, String.class);
+            Snapshot loaded = new Snapshot(JWKSet.parse(body), System.nanoTime());
+            snapshot = loaded;
+            count("success");
+            log.debug("JWKS loaded for {}: {} keys", registrationId, loaded.jwkSet.getKeys().size());
+            return loaded;
+        } catch (RuntimeException | ParseException e) {
+            count("failure");
+            if (seen != null) {
+                // Giữ bản cũ (có thể đã quá max-stale) thay vì chặn toàn bộ login SSO
+                log.warn("JWKS reload failed for {}, keeping cached set: {}", registrationId, e.getMessage());
+                return seen;
+            }
+            throw new KeySourceException("Unable to load JWKS for " + registrationId, e);
+        } finally {
+            fetchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("sso.jwks.refresh", "registration", registrationId, "result", result).increment();
+    }
+
+    private record Snapshot(JWKSet jwkSet, long loadedAt) {
+    }
+}
@@ -1,9 +1,10 @@
 package com.example.usermodule.service.sso;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.usermodule.util.JsonResponseWriter;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
@@ -15,9 +16,10 @@ import java.util.Map;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class OAuth2FailureHandler implements AuthenticationFailureHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonResponseWriter jsonResponseWriter;
 
     @Override
     public void onAuthenticationFailure(
@@ -31,8 +33,6 @@ public class OAuth2FailureHandler implements AuthenticationFailureHandler {
         resp.put("error", "oauth2_authentication_failed");
         resp.put("message", exception.getMessage());
 
-        response.setContentType("application/json;charset=UTF-8");
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        objectMapper.writeValue(response.getWriter(), resp);
+        jsonResponseWriter.write(response, HttpServletResponse.SC_UNAUTHORIZED, resp);
     }
 }
@@ -0,0 +1,101 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestOperations;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decoder ID token (OIDC) theo từng registration, thay OidcIdTokenDecoderFactory mặc định:
+ * JWKS lấy qua CachedJwkSource (HttpClient dùng chung, stale-while-revalidate) thay vì
+ * RestTemplate không timeout. Validator và claim converter giữ nguyên như mặc định.
+ * OAuth2LoginConfigurer tự nhận bean JwtDecoderFactory<ClientRegistration>
+ */
+@Component
+public class SsoIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration> {
+
+    private static final Converter<Map<String, Object>, Map<String, Object>> CLAIM_CONVERTER =
+            new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters());
+
+    private final RestOperations restOperations;
+    private final SsoClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sso-jwks-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, CachedJwkSource> sources = new ConcurrentHashMap<>();
+    private final Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+
+    public SsoIdTokenDecoderFactory(@Qualifier("ssoRestOperations") RestOperations restOperations,
+                                    SsoClientProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.restOperations = restOperations;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public JwtDecoder createDecoder(ClientRegistration registration) {
+        return decoders.computeIfAbsent(registration.getRegistrationId(), id -> build(registration));
+    }
+
+    // Làm mới nền các JWKS đã dùng, để login không phải là request gặp bản quá hạn
+    @Scheduled(fixedDelayString = "${sso.client.jwks-check-ms:60000}")
+    public void refreshStale() {
+        sources.values().forEach(CachedJwkSource::refreshIfStale);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private JwtDecoder build(ClientRegistration registration) {
+        String jwkSetUri = registration.getProviderDetails().getJwkSetUri();
+        if (!StringUtils.hasText(jwkSetUri)) {
+            throw new IllegalStateException("Missing jwk-set-uri for client registration " + registration.getRegistrationId());
+        }
+
+        CachedJwkSource source = new CachedJwkSource(registration.getRegistrationId(), jwkSetUri,
+                restOperations, refreshExecutor, properties, meterRegistry);
+        sources.put(registration.getRegistrationId(), source);
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, source));
+        // Claims do Spring validate (OidcIdTokenValidator), bỏ verifier mặc định của Nimbus
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                new JwtTimestampValidator(), new OidcIdTokenValidator(registration)));
+        decoder.setClaimSetConverter(CLAIM_CONVERTER);
+        return decoder;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.config.jfr.SsoProvisionEvent;
+import com.example.usermodule.data.pojo.TokenPair;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.service.JwtService;
+import com.example.usermodule.service.PasswordHashingService;
+import com.example.usermodule.service.RbacCache;
+import com.example.usermodule.service.RbacCache.UserRbac;
+import com.example.usermodule.util.TokenDigest;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Provision 1 lần cho mỗi lượt đăng nhập SSO (Google/Facebook):
+ * - 1 statement: tìm hoặc tạo user + upsert profile (CTE, không query trước)
+ * - RBAC lấy 1 lần qua RbacCache
+ * - 1 cặp token, 1 statement: revoke token cũ + lưu refresh token mới
+ * Kết quả gắn vào principal (AUTH_RESPONSE_ATTRIBUTE), success handler chỉ việc serialize
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SsoProvisioningService {
+
+    public static final String AUTH_RESPONSE_ATTRIBUTE = "localAuth";
+
+    // %s = cột dùng để nhận diện user (email, hoặc username khi provider không trả email).
+    // email không unique: chỉ cập nhật user có id nhỏ nhất, profile của các user trùng email khác giữ nguyên
+    private static final String UPSERT_ACCOUNT_SQL = """
+            WITH found AS (
+                UPDATE users SET last_login = ?
+                WHERE id = (SELECT id FROM users WHERE %s = ? ORDER BY id LIMIT 1)
+                RETURNING id, uid, username
+            ), created AS (
+                INSERT INTO users (uid, username, email, password_hash, active, failed_attempts, created_at, last_login)
+                SELECT ?, ?, ?, ?, 1, 0, ?, ?
+                WHERE NOT EXISTS (SELECT 1 FROM found)
+                ON CONFLICT DO NOTHING
+                RETURNING id, uid, username
+            ), account AS (
+                SELECT id, uid, username FROM found
+                UNION ALL
+                SELECT id, uid, username FROM created
+            ), profile_updated AS (
+                UPDATE user_profiles p
+                SET name = COALESCE(?, p.name), avatar = COALESCE(?, p.avatar)
+                FROM account a WHERE p.user_id = a.id
+                RETURNING p.user_id
+            ), profile_created AS (
+                INSERT INTO user_profiles (user_id, name, avatar)
+                SELECT a.id, ?, ? FROM account a
+                WHERE NOT EXISTS (SELECT 1 FROM profile_updated)
+            )
+            SELECT id, uid, username FROM account ORDER BY id LIMIT 1
+            """;
+
+    private static final String UPSERT_BY_EMAIL_SQL = UPSERT_ACCOUNT_SQL.formatted("email");
+    private static final String UPSERT_BY_USERNAME_SQL = UPSERT_ACCOUNT_SQL.formatted("username");
+
+    private static final String ROTATE_REFRESH_TOKEN_SQL = """
+            WITH revoked AS (
+                UPDATE user_tokens SET revoked = true WHERE user_id = ? AND revoked = false
+            )
+            INSERT INTO user_tokens (user_id, token_hash, created_at, expires_at, revoked)
+            VALUES (?, ?, ?, ?, false)
+            """;
+
+    private static final RowMapper<Account> ACCOUNT_MAPPER = (rs, i) -> new Account(
+            rs.getLong("id"),
+            rs.getObject("uid", UUID.class),
+            rs.getString("username")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RbacCache rbacCache;
+    private final JwtService jwtService;
+
+    /**
+     * @param provider registrationId (google, facebook)
+     * @param email    có thể null (Facebook không cấp quyền email)
+     * @param fallbackUsername username khi không có email (vd. "fb-" + id)
+     */
+    @Transactional
+    public AuthResponse provision(String provider, String email, String fallbackUsername,
+                                  String displayName, String avatar) {
+        String username = email != null ? email : fallbackUsername;
+        SsoProvisionEvent step = SsoProvisionEvent.start(provider, "upsert_account");
+        Account account = upsertAccount(email, username, displayName, avatar);
+        step.complete(account.username(), 1);
+
+        step = SsoProvisionEvent.start(provider, "rbac_load");
+        UserRbac rbac = rbacCache.resolve(account.id());
+        step.complete(account.username(), rbac.getRoles().size() + rbac.getPermissions().size());
+
+        step = SsoProvisionEvent.start(provider, "token_sign");
+        TokenPair tokens = jwtService.generateTokenPair(
+                account.username(), account.uid(), rbac.getRoles(), rbac.getPermissions());
+        step.complete(account.username(), 0);
+
+        step = SsoProvisionEvent.start(provider, "rotate_refresh_token");
+        LocalDateTime now = LocalDateTime.now();
+        int rows = jdbcTemplate.update(ROTATE_REFRESH_TOKEN_SQL,
+                account.id(),
+                account.id(),
+                TokenDigest.sha256(tokens.refreshToken()),
+                Timestamp.valueOf(now),
+                Timestamp.valueOf(now.plusDays(7)));
+        step.complete(account.username(), rows);
+
+        log.info("SSO login provisioned: {} via {}", account.username(), provider);
+
+        return AuthResponse.builder()
+                .username(account.username())
+                .email(email)
+                .avatar(avatar)
+                .provider(provider)
+                .accessToken(tokens.accessToken())
+                .refreshToken(tokens.refreshToken())
+                .roles(rbac.getRoles())
+                .permissions(rbac.getPermissions())
+                .build();
+    }
+
+    /**
+     * Avatar theo provider: Google trả URL ở "picture", Facebook trả {"data": {"url": ...}}
+     */
+    public static String avatarOf(Map<String, Object> attributes) {
+        Object picture = attributes.get("picture");
+        if (picture instanceof String url) return url;
+        if (picture instanceof Map<?, ?> map && map.get("data") instanceof Map<?, ?> data
+                && data.get("url") instanceof String url) {
+            return url;
+        }
+        return null;
+    }
+
+    private Account upsertAccount(String email, String username, String displayName, String avatar) {
+        String sql = email != null ? UPSERT_BY_EMAIL_SQL : UPSERT_BY_USERNAME_SQL;
+        String lookup = email != null ? email : username;
+
+        // Rỗng khi 2 lượt đăng nhập đầu tiên chạy song song (bên thua gặp ON CONFLICT):
+        // chạy lại 1 lần, lúc này user của bên thắng đã commit
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Account> rows = jdbcTemplate.query(sql, ACCOUNT_MAPPER,
+                    now, lookup,
+                    UUID.randomUUID(), username, email, PasswordHashingService.UNUSABLE_PASSWORD, now, now,
+                    displayName, avatar,
+                    displayName, avatar);
+            if (!rows.isEmpty()) return rows.get(0);
+        }
+
+        // username đã thuộc về user khác (email khác)
+        throw new OAuth2AuthenticationException(
+                new OAuth2Error("account_conflict"), "Username already taken: " + username);
+    }
+
+    private record Account(Long id, UUID uid, String username) {
+    }
+}
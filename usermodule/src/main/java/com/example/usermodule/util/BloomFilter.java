@@ -0,0 +1,55 @@
+package com.example.usermodule.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter không khoá trên AtomicLongArray, k vị trí sinh bằng double hashing từ 1 giá trị 64-bit.
+ * Không xoá được phần tử: muốn bỏ phần tử cũ thì dựng filter mới
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-Math.max(1, expectedInsertions) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedInsertions) * Math.log(2)));
+    }
+
+    public void put(long hash) {
+        long h1 = mix(hash);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int idx = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(idx);
+            while ((current & mask) == 0 && !words.compareAndSet(idx, current, current | mask)) {
+                current = words.get(idx);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = mix(hash);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Finalizer của SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
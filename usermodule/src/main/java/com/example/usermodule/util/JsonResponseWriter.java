@@ -0,0 +1,70 @@
+package com.example.usermodule.util;
+
+import com.example.usermodule.data.response.ApiResponse;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.data.response.BulkRegisterResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Serialize JSON dùng chung, trên ObjectMapper của Spring (cùng cấu hình với MVC):
+ * - ObjectWriter cache theo class, serializer gốc dựng sẵn 1 lần (ClassValue, không lock khi đọc)
+ * - ghi thẳng bytes UTF-8 ra OutputStream, không qua Writer/String trung gian
+ * - các kiểu response chính được warm-up lúc khởi động, request đầu không phải dựng serializer
+ */
+@Component
+public class JsonResponseWriter {
+
+    private static final List<Class<?>> WARM_UP_TYPES = List.of(
+            AuthResponse.class, ApiResponse.class, BulkRegisterResult.class, HashMap.class);
+
+    private final ObjectMapper objectMapper;
+    private final ClassValue<ObjectWriter> writers = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            // Không đóng stream đích: caller (servlet container, NDJSON stream) tự quản lý
+            return objectMapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+    };
+
+    public JsonResponseWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        WARM_UP_TYPES.forEach(writers::get);
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.get(type);
+    }
+
+    /**
+     * Ghi body JSON vào response servlet (status + content type)
+     */
+    public void write(HttpServletResponse response, int status, Object body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        writeTo(response.getOutputStream(), body);
+    }
+
+    public void writeTo(OutputStream out, Object value) throws IOException {
+        writers.get(value.getClass()).writeValue(out, value);
+    }
+
+    public byte[] toBytes(Object value) throws JsonProcessingException {
+        return writers.get(value.getClass()).writeValueAsBytes(value);
+    }
+
+    public String toJson(Object value) throws JsonProcessingException {
+        return writers.get(value.getClass()).writeValueAsString(value);
+    }
+}
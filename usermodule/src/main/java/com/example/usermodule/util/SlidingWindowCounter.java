@@ -0,0 +1,59 @@
+package com.example.usermodule.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bộ đếm cửa sổ trượt không khoá: cửa sổ chia thành SLOTS lát, mỗi lát là 1 AtomicLong
+ * gói (chỉ số lát << COUNT_BITS | số đếm). Lát cũ được ghi đè bằng CAS khi vòng lại
+ */
+public final class SlidingWindowCounter {
+
+    private static final int SLOTS = 10;
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long sliceMillis;
+    private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+    public SlidingWindowCounter(long windowMillis) {
+        this.sliceMillis = Math.max(1, windowMillis / SLOTS);
+    }
+
+    // Tăng 1 và trả về tổng trong cửa sổ
+    public int increment(long nowMillis) {
+        long slice = nowMillis / sliceMillis;
+        int idx = (int) (slice % SLOTS);
+        while (true) {
+            long current = slots.get(idx);
+            long next;
+            if ((current >>> COUNT_BITS) == slice) {
+                next = (current & COUNT_MASK) == COUNT_MASK ? current : current + 1;
+            } else {
+                next = (slice << COUNT_BITS) | 1;
+            }
+            if (slots.compareAndSet(idx, current, next)) {
+                break;
+            }
+        }
+        return count(nowMillis);
+    }
+
+    public int count(long nowMillis) {
+        long slice = nowMillis / sliceMillis;
+        int total = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long value = slots.get(i);
+            long valueSlice = value >>> COUNT_BITS;
+            if (valueSlice > slice - SLOTS && valueSlice <= slice) {
+                total += (int) (value & COUNT_MASK);
+            }
+        }
+        return total;
+    }
+
+    public void reset() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.usermodule.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Digest cố định 32 bytes (SHA-256) của chuỗi token, dùng làm key lưu/tra cứu thay cho token gốc
+ */
+public final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+}
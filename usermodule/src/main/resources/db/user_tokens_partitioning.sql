@@ -0,0 +1,51 @@
+-- Chuyển user_tokens sang partition theo tháng trên expires_at (chạy tay 1 lần, trong maintenance window)
+-- Sau khi chạy: bật token.compaction.partitioned=true để TokenCompactionService tự tạo/drop partition
+-- Lưu ý: unique index trên bảng partition phải chứa cột partition nên token_hash unique theo (token_hash, expires_at)
+
+BEGIN;
+
+ALTER TABLE user_tokens RENAME TO user_tokens_legacy;
+ALTER INDEX IF EXISTS ux_user_tokens_token_hash RENAME TO ux_user_tokens_legacy_token_hash;
+ALTER INDEX IF EXISTS ix_user_tokens_active_user RENAME TO ix_user_tokens_legacy_active_user;
+ALTER INDEX IF EXISTS ix_user_tokens_expires_at RENAME TO ix_user_tokens_legacy_expires_at;
+
+CREATE TABLE user_tokens (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id     BIGINT,
+    token_hash  BYTEA,
+    created_at  TIMESTAMP(6),
+    expires_at  TIMESTAMP(6) NOT NULL,
+    revoked     BOOLEAN,
+    PRIMARY KEY (id, expires_at)
+) PARTITION BY RANGE (expires_at);
+
+CREATE UNIQUE INDEX ux_user_tokens_token_hash ON user_tokens (token_hash, expires_at);
+CREATE INDEX ix_user_tokens_active_user ON user_tokens (user_id, expires_at) WHERE revoked = false;
+CREATE INDEX ix_user_tokens_expires_at ON user_tokens (expires_at);
+
+-- Partition cho tháng hiện tại và 3 tháng tới; các tháng sau do TokenCompactionService tạo
+DO $$
+DECLARE
+    m DATE := date_trunc('month', now())::date;
+BEGIN
+    FOR i IN 0..3 LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS user_tokens_%s PARTITION OF user_tokens FOR VALUES FROM (%L) TO (%L)',
+            to_char(m + make_interval(months => i), 'YYYY_MM'),
+            m + make_interval(months => i),
+            m + make_interval(months => i + 1));
+    END LOOP;
+END $$;
+
+-- Chỉ chuyển token còn hiệu lực, phần còn lại bỏ cùng bảng cũ
+INSERT INTO user_tokens (id, user_id, token_hash, created_at, expires_at, revoked)
+SELECT id, user_id, token_hash, created_at, expires_at, revoked
+FROM user_tokens_legacy
+WHERE revoked = false AND expires_at >= date_trunc('month', now());
+
+SELECT setval(pg_get_serial_sequence('user_tokens', 'id'),
+              COALESCE((SELECT max(id) FROM user_tokens_legacy), 0) + 1, false);
+
+DROP TABLE user_tokens_legacy;
+
+COMMIT;
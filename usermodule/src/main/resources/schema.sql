@@ -0,0 +1,78 @@
+-- Chạy sau Hibernate ddl-auto=update (spring.jpa.defer-datasource-initialization=true)
+-- Cả file gửi 1 lần cho Postgres (spring.sql.init.separator), mọi lệnh phải idempotent
+
+-- user_tokens: chuyển refresh_token (chuỗi JWT) sang token_hash (SHA-256, bytea)
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'user_tokens' AND column_name = 'refresh_token') THEN
+        UPDATE user_tokens
+        SET token_hash = sha256(convert_to(refresh_token, 'UTF8'))
+        WHERE token_hash IS NULL AND refresh_token IS NOT NULL;
+
+        ALTER TABLE user_tokens DROP COLUMN refresh_token;
+    END IF;
+END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_tokens_token_hash ON user_tokens (token_hash);
+
+-- Token đang hoạt động theo user (findActiveTokensByUserId, revokeAllTokensByUserId)
+CREATE INDEX IF NOT EXISTS ix_user_tokens_active_user
+    ON user_tokens (user_id, expires_at)
+    WHERE revoked = false;
+
+-- Token compaction (TokenCompactionService) tìm dòng theo expires_at
+CREATE INDEX IF NOT EXISTS ix_user_tokens_expires_at ON user_tokens (expires_at);
+
+-- users: DB cũ (trước khi có ux_users_username) có thể đã có username trùng, làm CREATE UNIQUE INDEX lỗi khi khởi động.
+-- Giữ user id nhỏ nhất, đổi tên các bản trùng còn lại thành username#id (không xoá vì còn FK token/profile/role),
+-- log WARNING để admin xử lý tay. Chỉ chạy khi index chưa có
+DO $$
+DECLARE
+    renamed integer;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_indexes WHERE tablename = 'users' AND indexname = 'ux_users_username') THEN
+        UPDATE users u
+        SET username = left(u.username, 200) || '#' || u.id
+        FROM (SELECT id, row_number() OVER (PARTITION BY username ORDER BY id) AS rn FROM users) d
+        WHERE u.id = d.id AND d.rn > 1;
+        GET DIAGNOSTICS renamed = ROW_COUNT;
+        IF renamed > 0 THEN
+            RAISE WARNING 'Renamed % duplicate username(s) to username#id before creating ux_users_username', renamed;
+        END IF;
+    END IF;
+END $$;
+
+-- users: trùng username do constraint quyết định (register, bulk import ON CONFLICT (username) DO NOTHING)
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username ON users (username);
+
+-- SSO provisioning tìm user theo email (SsoProvisioningService)
+CREATE INDEX IF NOT EXISTS ix_users_email ON users (email);
+
+-- Access token bị thu hồi trước hạn (AccessTokenDenylist), tự xoá khi quá expires_at
+CREATE TABLE IF NOT EXISTS revoked_access_tokens (
+    jti        uuid PRIMARY KEY,
+    expires_at timestamp NOT NULL,
+    revoked_at timestamp NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_revoked_access_tokens_revoked_at ON revoked_access_tokens (revoked_at);
+CREATE INDEX IF NOT EXISTS ix_revoked_access_tokens_expires_at ON revoked_access_tokens (expires_at);
+
+-- Mốc not-before theo user (logout-all, đổi mật khẩu); expires_at = not_before + thời hạn access token
+CREATE TABLE IF NOT EXISTS access_token_not_before (
+    user_id    bigint PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    not_before timestamp NOT NULL,
+    expires_at timestamp NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_access_token_not_before_not_before ON access_token_not_before (not_before);
+
+-- Khoá ký ES256 (JwtKeyManager), private_key = PKCS#8 mã hoá AES-GCM
+CREATE TABLE IF NOT EXISTS jwt_signing_keys (
+    kid          varchar(64) PRIMARY KEY,
+    algorithm    varchar(16) NOT NULL,
+    public_key   bytea       NOT NULL,
+    private_key  bytea       NOT NULL,
+    created_at   timestamp   NOT NULL,
+    activates_at timestamp   NOT NULL,
+    expires_at   timestamp   NOT NULL
+);
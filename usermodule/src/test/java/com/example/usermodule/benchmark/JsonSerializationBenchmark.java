@@ -0,0 +1,93 @@
+package com.example.usermodule.benchmark;
+
+import com.example.usermodule.data.response.ApiResponse;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.util.JsonResponseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize AuthResponse / ApiResponse<AuthResponse> (response của login, refresh, SSO):
+ * - newMapperPerCall: new ObjectMapper() mỗi lần (OAuth2LoginSuccessHandler, CommonUtils.getJSON trước đây)
+ * - sharedMapper: 1 ObjectMapper, writeValueAsBytes (tìm serializer qua cache của mapper mỗi lần)
+ * - cachedWriter: JsonResponseWriter, ObjectWriter dựng sẵn theo class, ghi thẳng vào OutputStream
+ * - cachedWriterBlackbird: như trên, mapper có BlackbirdModule (app.json.blackbird=true)
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+    @Param({"auth", "api"})
+    public String payload;
+
+    private Object value;
+    private ObjectMapper sharedMapper;
+    private JsonResponseWriter writer;
+    private JsonResponseWriter blackbirdWriter;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        AuthResponse auth = AuthResponse.builder()
+                .username("nguyen.van.a@example.com")
+                .email("nguyen.van.a@example.com")
+                .avatar("https://lh3.googleusercontent.com/a/ACg8ocK-avatar=s96-c")
+                .provider("google")
+                .accessToken("eyJhbGciOiJFUzI1NiIsImtpZCI6ImsxIn0." + "x".repeat(420) + ".sig")
+                .refreshToken("eyJhbGciOiJFUzI1NiIsImtpZCI6ImsxIn0." + "y".repeat(180) + ".sig")
+                .roles(Set.of("USER", "EMPLOYER"))
+                .permissions(Set.of("USER_READ", "USER_WRITE", "JOB_POST", "JOB_APPLY", "JOB_READ", "COMPANY_READ"))
+                .build();
+        value = "auth".equals(payload) ? auth : new ApiResponse<>(true, "Login successful", auth);
+
+        sharedMapper = new ObjectMapper();
+        writer = new JsonResponseWriter(new ObjectMapper());
+        blackbirdWriter = new JsonResponseWriter(new ObjectMapper().registerModule(new BlackbirdModule()));
+        out = new ByteArrayOutputStream(2048);
+    }
+
+    @Benchmark
+    public byte[] newMapperPerCall() throws IOException {
+        return new ObjectMapper().writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] sharedMapper() throws IOException {
+        return sharedMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public int cachedWriter() throws IOException {
+        out.reset();
+        writer.writeTo(out, value);
+        return out.size();
+    }
+
+    @Benchmark
+    public int cachedWriterBlackbird() throws IOException {
+        out.reset();
+        blackbirdWriter.writeTo(out, value);
+        return out.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
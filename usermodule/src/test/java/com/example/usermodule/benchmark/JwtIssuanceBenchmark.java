@@ -0,0 +1,102 @@
+package com.example.usermodule.benchmark;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.service.JwtKeyManager;
+import com.example.usermodule.service.JwtService;
+import com.example.usermodule.service.PermissionRegistry;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số token phát ra mỗi giây trên 1 core (@Threads(1); chạy -t N để xem tổng nhiều core):
+ * builder jjwt cũ (Date mới, Jackson, Mac mới mỗi lần) so với JwtIssuer (header sẵn, ghi claims trực tiếp, Mac từ pool).
+ * Cặp access + refresh tính là 2 token.
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtIssuanceBenchmark {
+
+    private static final Set<String> ROLES = Set.of("ADMIN", "USER");
+    private static final Set<String> PERMISSIONS = Set.of("USER_READ", "USER_WRITE", "JOB_POST", "JOB_APPLY");
+
+    private JwtProperties props;
+    private JwtService jwtService;
+    private SecretKey secretKey;
+    private UUID uid;
+
+    @Setup
+    public void setup() {
+        props = new JwtProperties();
+        props.setSecret("MySuperSecretKey12345678904566587sdfh");
+        props.setExpiration(3600000);
+        props.setRefreshExpiration(604800000);
+
+        jwtService = new JwtService(props, new PermissionRegistry(null), new JwtKeyManager(null, props, null, null));
+        secretKey = Keys.hmacShaKeyFor(props.getSecret().getBytes());
+        uid = UUID.randomUUID();
+
+        // Token do JwtIssuer phát phải parse được bằng jjwt
+        jwtService.verify(jwtService.generateToken("bench-user", uid, ROLES, PERMISSIONS));
+        jwtService.parseClaims(jwtService.generateRefreshToken("bench-user"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Object legacyPair() {
+        String access = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject("bench-user")
+                .claim("uid", uid.toString())
+                .claim("roles", ROLES)
+                .claim("permissions", PERMISSIONS)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + props.getExpiration()))
+                .signWith(secretKey, SignatureAlgorithm.HS256)
+                .compact();
+        String refresh = Jwts.builder()
+                .setSubject("bench-user")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + props.getRefreshExpiration()))
+                .signWith(secretKey, SignatureAlgorithm.HS256)
+                .compact();
+        return new String[]{access, refresh};
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Object separateCalls() {
+        return new String[]{
+                jwtService.generateToken("bench-user", uid, ROLES, PERMISSIONS),
+                jwtService.generateRefreshToken("bench-user")
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Object pair() {
+        return jwtService.generateTokenPair("bench-user", uid, ROLES, PERMISSIONS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtIssuanceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.usermodule.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput ký / verify access token theo thuật toán: HS256 (secret cũ), ES256 (khoá xoay vòng), RS256 để so sánh.
+ * Ed25519 đo trực tiếp bằng JCA trên cùng chuỗi header.payload vì jjwt 0.11 chưa hỗ trợ EdDSA.
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "ES256", "RS256", "Ed25519"})
+    public String algorithm;
+
+    private Key signingKey;
+    private SignatureAlgorithm jwtAlgorithm;
+    private JwtParser parser;
+    private String token;
+
+    // Ed25519 (JCA)
+    private KeyPair edKeys;
+    private byte[] signingInput;
+    private byte[] edSignature;
+
+    @Setup
+    public void setup() throws Exception {
+        switch (algorithm) {
+            case "HS256" -> {
+                signingKey = Keys.hmacShaKeyFor("MySuperSecretKey12345678904566587sdfh".getBytes());
+                jwtAlgorithm = SignatureAlgorithm.HS256;
+                parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+            }
+            case "ES256" -> {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                KeyPair pair = generator.generateKeyPair();
+                signingKey = pair.getPrivate();
+                jwtAlgorithm = SignatureAlgorithm.ES256;
+                parser = Jwts.parserBuilder().setSigningKey(pair.getPublic()).build();
+            }
+            case "RS256" -> {
+                KeyPair pair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+                signingKey = pair.getPrivate();
+                jwtAlgorithm = SignatureAlgorithm.RS256;
+                parser = Jwts.parserBuilder().setSigningKey(pair.getPublic()).build();
+            }
+            case "Ed25519" -> {
+                edKeys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+                String unsigned = Jwts.builder().setHeaderParam("alg", "EdDSA")
+                        .setClaims(Jwts.claims().setSubject("bench-user")).compact();
+                signingInput = unsigned.substring(0, unsigned.length() - 1).getBytes(StandardCharsets.US_ASCII);
+                edSignature = signEd25519();
+                return;
+            }
+            default -> throw new IllegalArgumentException(algorithm);
+        }
+        token = (String) sign();
+    }
+
+    @Benchmark
+    public Object sign() throws Exception {
+        if (edKeys != null) return signEd25519();
+        return Jwts.builder()
+                .setHeaderParam("kid", "bench")
+                .setSubject("bench-user")
+                .claim("roles", List.of("ADMIN", "USER"))
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(signingKey, jwtAlgorithm)
+                .compact();
+    }
+
+    @Benchmark
+    public Object verify() throws Exception {
+        if (edKeys != null) {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(edKeys.getPublic());
+            verifier.update(signingInput);
+            return verifier.verify(edSignature);
+        }
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    private byte[] signEd25519() throws Exception {
+        Signature signer = Signature.getInstance("Ed25519");
+        signer.initSign(edKeys.getPrivate());
+        signer.update(signingInput);
+        return signer.sign();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtSigningBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
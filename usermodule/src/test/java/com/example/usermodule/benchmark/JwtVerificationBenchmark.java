@@ -0,0 +1,89 @@
+package com.example.usermodule.benchmark;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.VerifiedToken;
+import com.example.usermodule.service.JwtKeyManager;
+import com.example.usermodule.service.JwtService;
+import com.example.usermodule.service.PermissionRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh đường verify cũ của JwtAuthenticationFilter (4 lần parse, mỗi lần dựng parser mới)
+ * với JwtService.verify (1 lần parse, parser dùng lại).
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private JwtService jwtService;
+    private SecretKey secretKey;
+    private String token;
+
+    @Setup
+    public void setup() {
+        JwtProperties props = new JwtProperties();
+        props.setSecret("MySuperSecretKey12345678904566587sdfh");
+        props.setExpiration(3600000);
+        props.setRefreshExpiration(604800000);
+
+        // Registry rỗng: token giữ permission dạng chuỗi như đường cũ
+        jwtService = new JwtService(props, new PermissionRegistry(null), new JwtKeyManager(null, props, null, null));
+        secretKey = Keys.hmacShaKeyFor(props.getSecret().getBytes());
+        token = jwtService.generateToken(
+                "bench-user",
+                UUID.randomUUID(),
+                Set.of("ADMIN", "USER"),
+                Set.of("USER_READ", "USER_WRITE", "JOB_POST", "JOB_APPLY")
+        );
+    }
+
+    // Đường cũ: extractUsername + validateToken (extractUsername + isTokenExpired) + parseClaims
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object legacyPath() {
+        String username = legacyParse(token).getSubject();
+        boolean valid = legacyParse(token).getSubject().equals(username)
+                && !legacyParse(token).getExpiration().before(new Date());
+        Claims claims = legacyParse(token);
+        List<String> roles = claims.get("roles", List.class);
+        List<String> perms = claims.get("permissions", List.class);
+        return valid ? List.of(roles, perms) : null;
+    }
+
+    @Benchmark
+    public VerifiedToken singlePassVerify() {
+        return jwtService.verify(token);
+    }
+
+    private Claims legacyParse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
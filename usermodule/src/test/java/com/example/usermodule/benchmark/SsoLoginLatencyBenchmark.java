@@ -0,0 +1,135 @@
+package com.example.usermodule.benchmark;
+
+import com.example.usermodule.config.sso.SsoClientConfig;
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import com.example.usermodule.service.sso.CustomOidcUserService;
+import com.example.usermodule.service.sso.FakeOidcProvider;
+import com.example.usermodule.service.sso.SsoIdTokenDecoderFactory;
+import com.example.usermodule.service.sso.SsoProvisioningService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationExchange;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponse;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Phần gọi provider của 1 lượt login OIDC (đổi code lấy token, verify ID token, user-info),
+ * chạy với FakeOidcProvider trong process nên đo được offline.
+ * latencyMs giả lập độ trễ mạng mỗi request tới provider.
+ * springDefaults: client mặc định của Spring Security (RestTemplate không timeout, luôn gọi user-info)
+ * tuned: SsoClientConfig + SsoIdTokenDecoderFactory (HttpClient dùng chung, JWKS cache, bỏ user-info khi ID token đủ claim)
+ * Provider giả là HTTP thường: với HTTPS thật, việc giữ kết nối còn tiết kiệm thêm TLS handshake.
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SsoLoginLatencyBenchmark {
+
+    @Param({"0", "20"})
+    public long latencyMs;
+
+    private FakeOidcProvider provider;
+    private ClientRegistration registration;
+    private HttpClient httpClient;
+
+    private OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> defaultTokenClient;
+    private JwtDecoder defaultDecoder;
+    private OidcUserService defaultUserService;
+
+    private OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> tunedTokenClient;
+    private JwtDecoder tunedDecoder;
+    private OidcUserService tunedUserService;
+
+    @Setup
+    public void setup() throws Exception {
+        provider = new FakeOidcProvider();
+        provider.setLatencyMillis(latencyMs);
+        registration = provider.oidcRegistration();
+
+        defaultTokenClient = new DefaultAuthorizationCodeTokenResponseClient();
+        defaultDecoder = new OidcIdTokenDecoderFactory().createDecoder(registration);
+        defaultUserService = new OidcUserService();
+
+        SsoClientProperties properties = new SsoClientProperties();
+        SsoClientConfig config = new SsoClientConfig();
+        httpClient = config.ssoHttpClient(properties);
+        ClientHttpRequestFactory requestFactory = config.ssoRequestFactory(httpClient, properties);
+        tunedTokenClient = config.ssoAccessTokenResponseClient(requestFactory);
+        tunedDecoder = new SsoIdTokenDecoderFactory(config.ssoRestOperations(requestFactory), properties,
+                new SimpleMeterRegistry()).createDecoder(registration);
+        // Provision bị mock: chỉ đo phần gọi provider
+        tunedUserService = new CustomOidcUserService(
+                mock(SsoProvisioningService.class), config.ssoOAuth2UserService(requestFactory), properties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.close();
+        provider.close();
+    }
+
+    @Benchmark
+    public OAuth2User springDefaults() {
+        return login(defaultTokenClient, defaultDecoder, defaultUserService);
+    }
+
+    @Benchmark
+    public OAuth2User tuned() {
+        return login(tunedTokenClient, tunedDecoder, tunedUserService);
+    }
+
+    private OAuth2User login(OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> tokenClient,
+                             JwtDecoder decoder, OidcUserService userService) {
+        OAuth2AccessTokenResponse tokens = tokenClient.getTokenResponse(codeGrant());
+        Jwt jwt = decoder.decode((String) tokens.getAdditionalParameters().get("id_token"));
+        OidcIdToken idToken = new OidcIdToken(jwt.getTokenValue(), jwt.getIssuedAt(), jwt.getExpiresAt(), jwt.getClaims());
+        return userService.loadUser(new OidcUserRequest(registration, tokens.getAccessToken(), idToken));
+    }
+
+    private OAuth2AuthorizationCodeGrantRequest codeGrant() {
+        OAuth2AuthorizationRequest request = OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri(registration.getProviderDetails().getAuthorizationUri())
+                .clientId(registration.getClientId())
+                .redirectUri(registration.getRedirectUri())
+                .scopes(registration.getScopes())
+                .state("state")
+                .build();
+        OAuth2AuthorizationResponse response = OAuth2AuthorizationResponse.success("code")
+                .redirectUri(registration.getRedirectUri())
+                .state("state")
+                .build();
+        return new OAuth2AuthorizationCodeGrantRequest(registration, new OAuth2AuthorizationExchange(request, response));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SsoLoginLatencyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
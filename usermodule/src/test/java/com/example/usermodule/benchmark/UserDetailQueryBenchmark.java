@@ -0,0 +1,122 @@
+package com.example.usermodule.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh UserService.getUserDetail cũ (5 statement: user, profile, roles, permissions, active tokens)
+ * với projection 1 statement UserRepository.findUserDetail.
+ * Chạy ở tầng JDBC trên Postgres thật, statement/op lấy từ cột "statements" của AuxCounters.
+ * Cấu hình: -Dbench.jdbc.url, -Dbench.jdbc.user, -Dbench.jdbc.password, -Dbench.userId
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserDetailQueryBenchmark {
+
+    private static final String[] LEGACY_SQL = {
+            "SELECT * FROM users u WHERE u.id = ?",
+            "SELECT * FROM user_profiles p WHERE p.user_id = ?",
+            "SELECT r.name FROM user_roles ur JOIN roles r ON ur.role_id = r.id WHERE ur.user_id = ?",
+            "SELECT p.code FROM user_roles ur JOIN role_permissions rp ON ur.role_id = rp.role_id"
+                    + " JOIN permissions p ON rp.permission_id = p.id WHERE ur.user_id = ?",
+            "SELECT * FROM user_tokens t WHERE t.user_id = ? AND t.revoked = false AND t.expires_at > CURRENT_TIMESTAMP"
+    };
+
+    // Giống UserRepository.findUserDetail
+    private static final String PROJECTION_SQL = """
+            SELECT u.id, u.username, u.email, u.phone, u.last_login, p.name, p.avatar,
+                   ARRAY(SELECT r.id FROM user_roles ur JOIN roles r ON r.id = ur.role_id
+                         WHERE ur.user_id = u.id ORDER BY r.id),
+                   ARRAY(SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id
+                         WHERE ur.user_id = u.id ORDER BY r.id),
+                   ARRAY(SELECT rp.role_id FROM user_roles ur
+                         JOIN role_permissions rp ON rp.role_id = ur.role_id
+                         JOIN permissions pm ON pm.id = rp.permission_id
+                         WHERE ur.user_id = u.id ORDER BY rp.role_id, pm.code),
+                   ARRAY(SELECT pm.code::text FROM user_roles ur
+                         JOIN role_permissions rp ON rp.role_id = ur.role_id
+                         JOIN permissions pm ON pm.id = rp.permission_id
+                         WHERE ur.user_id = u.id ORDER BY rp.role_id, pm.code)
+            FROM users u
+            LEFT JOIN user_profiles p ON u.id = p.user_id
+            WHERE u.id = ?
+            """;
+
+    private Connection connection;
+    private PreparedStatement[] legacy;
+    private PreparedStatement projection;
+    private long userId;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class StatementCounter {
+        public long statements;
+    }
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/mydb"),
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", "19102004"));
+        userId = Long.getLong("bench.userId", 1L);
+
+        legacy = new PreparedStatement[LEGACY_SQL.length];
+        for (int i = 0; i < LEGACY_SQL.length; i++) {
+            legacy[i] = connection.prepareStatement(LEGACY_SQL[i]);
+        }
+        projection = connection.prepareStatement(PROJECTION_SQL);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void legacyFanOut(StatementCounter counter, Blackhole bh) throws SQLException {
+        for (PreparedStatement ps : legacy) {
+            ps.setLong(1, userId);
+            drain(ps, bh);
+            counter.statements++;
+        }
+    }
+
+    @Benchmark
+    public void singleProjection(StatementCounter counter, Blackhole bh) throws SQLException {
+        projection.setLong(1, userId);
+        drain(projection, bh);
+        counter.statements++;
+    }
+
+    private static void drain(PreparedStatement ps, Blackhole bh) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int c = 1; c <= columns; c++) {
+                    bh.consume(rs.getObject(c));
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserDetailQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
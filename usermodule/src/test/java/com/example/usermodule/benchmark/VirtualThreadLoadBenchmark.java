@@ -0,0 +1,127 @@
+package com.example.usermodule.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tải mô phỏng request blocking (JDBC / gọi provider OAuth2 ~ ioMillis) khi chạy trên
+ * pool platform cỡ Tomcat mặc định (200) so với virtual thread mỗi request.
+ * Mỗi op bắn `concurrency` request cùng lúc; `requests` là throughput, p99 in ra sau mỗi iteration.
+ * pinned=true giữ monitor khi blocking để thấy ảnh hưởng pin carrier thread.
+ * Số đo là tổng hợp (synthetic): "request" chỉ là Thread.sleep(ioMillis) trên executor, không qua
+ * Tomcat / Spring Security / Hibernate / DB. Nó cho thấy giới hạn của mô hình thread, không phải
+ * throughput của endpoint nào trong app: /api/auth/* vẫn bị chặn bởi pool Hikari (mặc định 10 kết nối)
+ * và pool bcrypt (auth.hashing.*), dù bật virtual thread.
+ * Chạy: main() sau khi mvn test-compile
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadLoadBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"200", "2000"})
+    public int concurrency;
+
+    @Param({"10"})
+    public int ioMillis;
+
+    @Param({"false", "true"})
+    public boolean pinned;
+
+    private ExecutorService executor;
+    private long[] latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long requests;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = "virtual".equals(mode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        latencies = new long[1 << 20];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        recorded.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPercentiles() {
+        int n = Math.min(recorded.get(), latencies.length);
+        if (n == 0) return;
+        long[] sample = Arrays.copyOf(latencies, n);
+        Arrays.sort(sample);
+        System.out.printf("%n[%s c=%d pinned=%s] p50=%.1fms p99=%.1fms (n=%d)%n",
+                mode, concurrency, pinned,
+                sample[n / 2] / 1e6, sample[(int) (n * 0.99)] / 1e6, n);
+    }
+
+    @Benchmark
+    public void burst(Counters counters) throws Exception {
+        long submitted = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executor.submit(() -> handle(submitted)));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        counters.requests += concurrency;
+    }
+
+    // 1 "request": chờ IO rồi ghi latency tính từ lúc request tới (gồm cả thời gian xếp hàng)
+    private void handle(long submitted) {
+        try {
+            if (pinned) {
+                Object monitor = new Object();
+                synchronized (monitor) {
+                    Thread.sleep(ioMillis);
+                }
+            } else {
+                Thread.sleep(ioMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int idx = recorded.getAndIncrement();
+        if (idx < latencies.length) {
+            latencies[idx] = System.nanoTime() - submitted;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
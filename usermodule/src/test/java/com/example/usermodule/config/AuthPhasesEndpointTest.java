@@ -0,0 +1,66 @@
+package com.example.usermodule.config;
+
+import com.example.usermodule.service.AuthMetrics;
+import com.example.usermodule.service.AuthMetrics.Flow;
+import com.example.usermodule.service.AuthMetrics.Outcome;
+import com.example.usermodule.service.AuthMetrics.Phase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthPhasesEndpointTest {
+
+    private SimpleMeterRegistry registry;
+    private AuthMetrics authMetrics;
+    private AuthPhasesEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        authMetrics = new AuthMetrics(registry);
+        endpoint = new AuthPhasesEndpoint(authMetrics);
+    }
+
+    @Test
+    void phasesAreTaggedByFlowPhaseAndOutcome() {
+        long t = System.nanoTime();
+        t = authMetrics.success(Phase.LOGIN_USER_LOOKUP, t);
+        authMetrics.reject(Phase.LOGIN_PASSWORD_VERIFY, t, Outcome.BAD_CREDENTIALS);
+
+        assertEquals(1, registry.get("auth.phase")
+                .tags("flow", "login", "phase", "user_lookup", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("auth.phase")
+                .tags("flow", "login", "phase", "password_verify", "outcome", "failure").timer().count());
+        assertEquals(1, registry.get("auth.outcome")
+                .tags("flow", "login", "outcome", "bad_credentials").counter().count());
+        assertEquals(0, registry.get("auth.outcome")
+                .tags("flow", "login", "outcome", "success").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void endpointSummarisesOnlyRecordedPhases() {
+        long t = System.nanoTime();
+        t = authMetrics.success(Phase.REQUEST_TOKEN_VERIFY, t);
+        authMetrics.success(Phase.REQUEST_AUTHORITY_BUILD, t);
+        authMetrics.outcome(Flow.REQUEST, Outcome.SUCCESS);
+
+        Map<String, Object> flows = endpoint.phases();
+        Map<String, Object> request = (Map<String, Object>) flows.get("request");
+        Map<String, Object> outcomes = (Map<String, Object>) request.get("outcomes");
+        Map<String, Object> phases = (Map<String, Object>) request.get("phases");
+
+        assertEquals(Map.of("success", 1L), outcomes);
+        assertEquals(2, phases.size());
+        Map<String, Object> verify = (Map<String, Object>) ((Map<String, Object>) phases.get("token_verify")).get("success");
+        assertEquals(1L, verify.get("count"));
+        assertTrue(verify.containsKey("p99Ms"));
+
+        Map<String, Object> login = (Map<String, Object>) flows.get("login");
+        assertTrue(((Map<String, Object>) login.get("phases")).isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.usermodule.config.sql;
+
+import com.example.usermodule.data.pojo.SqlBudgetProperties;
+import com.example.usermodule.exception.SqlBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Filter + interceptor + advice đếm statement thật đi qua StatementCountingDataSource
+ * (JDBC bên dưới là mock, mỗi query trả 2 dòng)
+ */
+class SqlBudgetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlBudgetProperties properties = new SqlBudgetProperties();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new StatementCountingDataSource(twoRowDataSource()));
+        properties.setEnforce(true);
+        mockMvc = MockMvcBuilders.standaloneSetup(new QueryController(jdbcTemplate))
+                .addFilters(new SqlBudgetFilter(meterRegistry, properties))
+                .addInterceptors(new SqlBudgetInterceptor())
+                .setControllerAdvice(new SqlBudgetResponseAdvice(properties))
+                .build();
+    }
+
+    @Test
+    void countsStatementsAndRowsPerRequest() throws Exception {
+        mockMvc.perform(get("/queries/3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlBudgetResponseAdvice.STATEMENTS_HEADER, "3"))
+                .andExpect(header().string(SqlBudgetResponseAdvice.ROWS_HEADER, "6"));
+
+        assertEquals(3.0, meterRegistry.get("db.request.statements")
+                .tag("handler", "QueryController.run").summary().totalAmount());
+        assertEquals(6.0, meterRegistry.get("db.request.rows")
+                .tag("handler", "QueryController.run").summary().totalAmount());
+    }
+
+    @Test
+    void failsRequestOverBudgetWhenEnforced() {
+        // Advice ném trước khi ghi body (DispatcherServlet bọc trong ServletException)
+        Exception e = assertThrows(Exception.class, () -> mockMvc.perform(get("/queries/5")));
+        assertInstanceOf(SqlBudgetExceededException.class, NestedExceptionUtils.getMostSpecificCause(e));
+        assertEquals(1.0, meterRegistry.get("db.request.budget.exceeded")
+                .tag("handler", "QueryController.run").counter().count());
+    }
+
+    @Test
+    void onlyCountsOverBudgetWhenNotEnforced() throws Exception {
+        properties.setEnforce(false);
+        mockMvc.perform(get("/queries/5")).andExpect(status().isOk());
+        assertEquals(1.0, meterRegistry.get("db.request.budget.exceeded").counter().count());
+    }
+
+    @RestController
+    static class QueryController {
+        private final JdbcTemplate jdbcTemplate;
+
+        QueryController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        // Mô phỏng N+1: mỗi vòng 1 query
+        @GetMapping("/queries/{n}")
+        @SqlBudget(statements = 4)
+        public Map<String, Integer> run(@PathVariable int n) {
+            int rows = 0;
+            for (int i = 0; i < n; i++) {
+                List<Long> ids = jdbcTemplate.query("SELECT id FROM users WHERE id > ?", (rs, row) -> rs.getLong(1), i);
+                rows += ids.size();
+            }
+            return Map.of("rows", rows);
+        }
+    }
+
+    private static DataSource twoRowDataSource() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenAnswer(inv -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.next()).thenReturn(true, true, false);
+            when(rs.getLong(1)).thenReturn(1L, 2L);
+            PreparedStatement ps = mock(PreparedStatement.class);
+            when(ps.executeQuery()).thenReturn(rs);
+            return ps;
+        });
+        return dataSource;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.usermodule.controller;
+
+import com.example.usermodule.data.response.BulkAssignmentResult;
+import com.example.usermodule.service.BulkRegistrationService;
+import com.example.usermodule.service.JfrRecordingService;
+import com.example.usermodule.service.RbacBulkAssignmentService;
+import com.example.usermodule.service.RolePermissionService;
+import com.example.usermodule.service.UserRoleService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(AdminControllerSecurityTest.Config.class)
+class AdminControllerSecurityTest {
+
+    @Configuration
+    @EnableMethodSecurity
+    @Import({UserAdminController.class, ProfilingAdminController.class})
+    static class Config {
+    }
+
+    @MockBean
+    UserRoleService userRoleService;
+    @MockBean
+    RolePermissionService rolePermissionService;
+    @MockBean
+    BulkRegistrationService bulkRegistrationService;
+    @MockBean
+    RbacBulkAssignmentService rbacBulkAssignmentService;
+    @MockBean
+    JfrRecordingService jfrRecordingService;
+
+    @Autowired
+    UserAdminController controller;
+    @Autowired
+    ProfilingAdminController profilingController;
+
+    @Test
+    void anonymousCannotSyncRoles() {
+        assertThrows(AuthenticationCredentialsNotFoundException.class,
+                () -> controller.syncUserRoles(Map.of(1L, List.of(1L))));
+        verifyNoInteractions(rbacBulkAssignmentService);
+    }
+
+    // User tự tạo qua SSO chỉ có ROLE_USER / OIDC_USER
+    @Test
+    @WithMockUser(roles = "USER")
+    void nonAdminCannotRewriteRbac() {
+        assertThrows(AccessDeniedException.class,
+                () -> controller.syncUserRoles(Map.of(1L, List.of(1L))));
+        assertThrows(AccessDeniedException.class,
+                () -> controller.syncRolePermissions(Map.of(1L, List.of(1L))));
+        assertThrows(AccessDeniedException.class,
+                () -> controller.assignRoles(1L, List.of(1L)));
+        verifyNoInteractions(rbacBulkAssignmentService, userRoleService);
+    }
+
+    // File .jfr chứa stack trace + SQL
+    @Test
+    @WithMockUser(roles = "USER")
+    void nonAdminCannotRecordOrDownloadJfr() {
+        assertThrows(AccessDeniedException.class, () -> profilingController.start(null, null));
+        assertThrows(AccessDeniedException.class, profilingController::stop);
+        assertThrows(AccessDeniedException.class, profilingController::recording);
+        verifyNoInteractions(jfrRecordingService);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void adminCanSyncRoles() {
+        when(rbacBulkAssignmentService.syncUserRoles(any())).thenReturn(mock(BulkAssignmentResult.class));
+        assertEquals(200, controller.syncUserRoles(Map.of(1L, List.of(1L))).getStatusCode().value());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.usermodule.controller;
+
+import com.example.usermodule.config.sql.SqlBudgetResponseAdvice;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * register / login / refresh qua toàn bộ app (filter, security, Hibernate, schema.sql) trên Postgres thật,
+ * app.sql-budget.enforce=true: request vượt @SqlBudget bị lỗi (SqlBudgetExceededException) và test fail.
+ * Số statement đo được ghi lại ở đây; đổi số statement của endpoint thì sửa @SqlBudget cùng lúc.
+ * Bỏ qua khi máy không có Docker
+ */
+@SpringBootTest(properties = {
+        "GOOGLE_CLIENT_ID=test", "GOOGLE_CLIENT_SECRET=test",
+        "FACEBOOK_CLIENT_ID=test", "FACEBOOK_CLIENT_SECRET=test",
+        // Profile docker tắt sql-budget; bật lại + enforce như src/test/resources
+        "app.sql-budget.enabled=true", "app.sql-budget.enforce=true",
+        "spring.jpa.show-sql=false",
+        "auth.hashing.min-strength=5", "auth.hashing.max-strength=5"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("docker")
+@Testcontainers(disabledWithoutDocker = true)
+class AuthControllerSqlBudgetPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void registerLoginAndRefreshStayWithinBudget() throws Exception {
+        // INSERT users
+        MvcResult register = call("/api/auth/register",
+                Map.of("username", "alice", "email", "alice@example.com", "password", "secret"));
+        assertEquals(1, statements(register));
+
+        // Trùng username: INSERT lỗi do unique constraint
+        MvcResult duplicate = call("/api/auth/register",
+                Map.of("username", "alice", "email", "alice@example.com", "password", "secret"));
+        assertEquals(1, statements(duplicate));
+
+        // user, revoke token cũ, user detail (RBAC chưa có trong cache), INSERT refresh token
+        MvcResult login = call("/api/auth/login", Map.of("username", "alice", "password", "secret"));
+        assertEquals(4, statements(login));
+
+        // Hash cost thấp hơn cấu hình: thêm UPDATE password_hash
+        jdbc.update("UPDATE users SET password_hash = ? WHERE username = 'alice'", BCrypt.hashpw("secret", BCrypt.gensalt(4)));
+        MvcResult rehash = call("/api/auth/login", Map.of("username", "alice", "password", "secret"));
+        assertEquals(5, statements(rehash));
+
+        // refresh token theo digest, user, user detail
+        String refreshToken = data(rehash).get("refreshToken").asText();
+        MvcResult refresh = call("/api/auth/refresh", Map.of("refreshToken", refreshToken));
+        assertEquals(3, statements(refresh));
+    }
+
+    private MvcResult call(String path, Map<String, String> body) throws Exception {
+        return mockMvc.perform(post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").exists())
+                .andReturn();
+    }
+
+    private static int statements(MvcResult result) {
+        return Integer.parseInt(result.getResponse().getHeader(SqlBudgetResponseAdvice.STATEMENTS_HEADER));
+    }
+
+    private JsonNode data(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("data");
+    }
+}
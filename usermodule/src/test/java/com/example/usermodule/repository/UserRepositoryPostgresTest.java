@@ -0,0 +1,145 @@
+package com.example.usermodule.repository;
+
+import com.example.usermodule.data.pojo.UserDTO;
+import com.example.usermodule.data.pojo.UserDetailView;
+import com.example.usermodule.service.RbacCache;
+import com.example.usermodule.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Chạy native query findUserDetail thật trên Postgres (Testcontainers): cột ARRAY(...) phải map được
+ * sang Long[] / String[] của UserDetailView. Bỏ qua khi máy không có Docker
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class UserRepositoryPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private RbacCache rbacCache;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        rbacCache = new RbacCache(mock(UserRoleRepository.class), mock(RolePermissionRepository.class), new SimpleMeterRegistry());
+        userService = new UserService(userRepository, rbacCache, mock(UserTokenRepository.class));
+    }
+
+    @Test
+    void userWithoutRoles() {
+        long userId = user("nobody");
+
+        UserDetailView view = userRepository.findUserDetail(userId).orElseThrow();
+        assertEquals("nobody", view.getUsername());
+        assertEquals("Name nobody", view.getName());
+        assertArrayEquals(new Long[0], view.getRoleIds());
+        assertArrayEquals(new String[0], view.getRoles());
+        assertArrayEquals(new Long[0], view.getPermissionRoleIds());
+        assertArrayEquals(new String[0], view.getPermissionCodes());
+
+        UserDTO dto = userService.getUserDetail(userId).orElseThrow();
+        assertEquals(Set.of("USER"), dto.getRoles());
+        assertEquals(Set.of(), dto.getPermissions());
+    }
+
+    @Test
+    void userWithOneRole() {
+        long userId = user("alice");
+        long employer = role("EMPLOYER", "JOB_POST", "JOB_EDIT");
+        assign(userId, employer);
+
+        UserDetailView view = userRepository.findUserDetail(userId).orElseThrow();
+        assertArrayEquals(new Long[]{employer}, view.getRoleIds());
+        assertArrayEquals(new String[]{"EMPLOYER"}, view.getRoles());
+        assertArrayEquals(new Long[]{employer, employer}, view.getPermissionRoleIds());
+        assertArrayEquals(new String[]{"JOB_EDIT", "JOB_POST"}, view.getPermissionCodes());
+
+        UserDTO dto = userService.getUserDetail(userId).orElseThrow();
+        assertEquals(Set.of("EMPLOYER"), dto.getRoles());
+        assertEquals(Set.of("JOB_EDIT", "JOB_POST"), dto.getPermissions());
+    }
+
+    @Test
+    void userWithSeveralRolesKeepsPermissionsPerRole() {
+        long userId = user("bob");
+        long employer = role("EMPLOYER", "JOB_POST");
+        long viewer = role("VIEWER");
+        // Mã có dấu phẩy không được tách thành 2 permission
+        long reporter = role("REPORTER", "REPORT,EXPORT", "JOB_POST");
+        assign(userId, employer);
+        assign(userId, viewer);
+        assign(userId, reporter);
+        user("other");
+
+        UserDetailView view = userRepository.findUserDetail(userId).orElseThrow();
+        assertArrayEquals(new Long[]{employer, viewer, reporter}, view.getRoleIds());
+        assertArrayEquals(new String[]{"EMPLOYER", "VIEWER", "REPORTER"}, view.getRoles());
+
+        UserDTO dto = userService.getUserDetail(userId).orElseThrow();
+        assertEquals(Set.of("EMPLOYER", "VIEWER", "REPORTER"), dto.getRoles());
+        assertEquals(Set.of("JOB_POST", "REPORT,EXPORT"), dto.getPermissions());
+        assertEquals(Set.of("JOB_POST"), rbacCache.permissionsOfRole(employer));
+        assertEquals(Set.of(), rbacCache.permissionsOfRole(viewer));
+        assertEquals(Set.of("JOB_POST", "REPORT,EXPORT"), rbacCache.permissionsOfRole(reporter));
+    }
+
+    @Test
+    void unknownUser() {
+        assertTrue(userRepository.findUserDetail(-1L).isEmpty());
+    }
+
+    private long user(String username) {
+        Long id = jdbc.queryForObject(
+                "INSERT INTO users (username, active, failed_attempts) VALUES (?, 1, 0) RETURNING id", Long.class, username);
+        jdbc.update("INSERT INTO user_profiles (user_id, name) VALUES (?, ?)", id, "Name " + username);
+        return id;
+    }
+
+    private long role(String name, String... permissionCodes) {
+        Long roleId = jdbc.queryForObject("INSERT INTO roles (name) VALUES (?) RETURNING id", Long.class, name);
+        for (String code : permissionCodes) {
+            Long permissionId = jdbc.query("SELECT id FROM permissions WHERE code = ?",
+                    rs -> rs.next() ? rs.getLong(1) : null, code);
+            if (permissionId == null) {
+                permissionId = jdbc.queryForObject("INSERT INTO permissions (code) VALUES (?) RETURNING id", Long.class, code);
+            }
+            jdbc.update("INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?)", roleId, permissionId);
+        }
+        return roleId;
+    }
+
+    private void assign(long userId, long roleId) {
+        jdbc.update("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", userId, roleId);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Bloom filter của denylist được dựng lại khi prune: không được sót token đã thu hồi
+ */
+class AccessTokenDenylistTest {
+
+    private AccessTokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties props = new JwtProperties();
+        props.setExpiration(3600000);
+        // Capacity nhỏ để prune phải dựng filter lớn hơn
+        denylist = new AccessTokenDenylist(mock(JdbcTemplate.class), props, new SimpleMeterRegistry(), 16);
+    }
+
+    @Test
+    void revokedTokensSurviveRebuild() {
+        List<VerifiedToken> revoked = IntStream.range(0, 1_000).mapToObj(i -> token()).toList();
+        revoked.forEach(denylist::revoke);
+
+        denylist.prune();
+
+        assertTrue(revoked.stream().allMatch(denylist::isRevoked));
+        assertFalse(denylist.isRevoked(token()));
+    }
+
+    @Test
+    void tokensRevokedDuringRebuildAreNotLost() throws InterruptedException {
+        List<VerifiedToken> revoked = new CopyOnWriteArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                VerifiedToken t = token();
+                denylist.revoke(t);
+                revoked.add(t);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            denylist.prune();
+        }
+        writer.join();
+
+        assertEquals(5_000, revoked.size());
+        assertTrue(revoked.stream().allMatch(denylist::isRevoked));
+    }
+
+    private static VerifiedToken token() {
+        Instant now = Instant.now();
+        return new VerifiedToken(UUID.randomUUID(), "alice", null, List.of(), List.of(), null, true,
+                now, now.plusSeconds(3600), null);
+    }
+}
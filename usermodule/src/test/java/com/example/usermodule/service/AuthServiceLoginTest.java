@@ -0,0 +1,153 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.User;
+import com.example.usermodule.data.pojo.TokenPair;
+import com.example.usermodule.data.pojo.UserDTO;
+import com.example.usermodule.data.request.AuthProperties;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.exception.AuthException;
+import com.example.usermodule.repository.UserRepository;
+import com.example.usermodule.repository.UserTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * login / changePassword: bcrypt (matches / encode) chạy ngoài transaction, chỉ phần ghi nằm trong TransactionTemplate
+ */
+class AuthServiceLoginTest {
+
+    private UserRepository userRepository;
+    private UserTokenRepository userTokenRepository;
+    private PasswordHashingService passwordHashingService;
+    private TransactionTemplate transactionTemplate;
+    private AccessTokenDenylist accessTokenDenylist;
+    private AuthService authService;
+
+    private final List<String> calls = new ArrayList<>();
+    private boolean inTransaction;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userTokenRepository = mock(UserTokenRepository.class);
+        passwordHashingService = mock(PasswordHashingService.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        accessTokenDenylist = mock(AccessTokenDenylist.class);
+        JwtService jwtService = mock(JwtService.class);
+        UserService userService = mock(UserService.class);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUid(UUID.randomUUID());
+        user.setUsername("alice");
+        user.setPasswordHash("$2a$04$old");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            inTransaction = true;
+            try {
+                return ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null);
+            } finally {
+                inTransaction = false;
+            }
+        });
+        when(passwordHashingService.matches(eq("alice"), eq("secret"), anyString())).thenAnswer(inv -> {
+            calls.add("matches:" + inTransaction);
+            return true;
+        });
+        when(passwordHashingService.needsRehash(anyString())).thenReturn(true);
+        when(passwordHashingService.encode("secret")).thenAnswer(inv -> {
+            calls.add("encode:" + inTransaction);
+            return "$2a$10$new";
+        });
+        doAnswer(inv -> calls.add("updatePasswordHash:" + inTransaction))
+                .when(userRepository).updatePasswordHash(1L, "$2a$10$new");
+        doAnswer(inv -> calls.add("revoke:" + inTransaction))
+                .when(userTokenRepository).revokeAllTokensByUserId(1L);
+        when(userTokenRepository.save(any())).thenAnswer(inv -> {
+            calls.add("saveRefresh:" + inTransaction);
+            return inv.getArgument(0);
+        });
+
+        when(userService.getUserDetail(1L)).thenReturn(Optional.of(UserDTO.builder()
+                .id(1L).username("alice").roles(Set.of("USER")).permissions(Set.of()).activeTokens(List.of())
+                .build()));
+        when(jwtService.generateTokenPair(eq("alice"), any(), any(), any()))
+                .thenReturn(new TokenPair("access", "refresh"));
+
+        authService = new AuthService(userRepository, userTokenRepository, jwtService, passwordHashingService,
+                new AuthProperties(), userService, mock(LoginStateBuffer.class), mock(LoginThrottle.class),
+                accessTokenDenylist, new AuthMetrics(new SimpleMeterRegistry()), transactionTemplate);
+    }
+
+    @Test
+    void bcryptRunsOutsideTransactionAndWritesInside() {
+        AuthResponse response = authService.login("alice", "secret", "10.0.0.1");
+
+        assertEquals("access", response.getAccessToken());
+        assertEquals(List.of(
+                "matches:false",
+                "encode:false",
+                "updatePasswordHash:true",
+                "revoke:true",
+                "saveRefresh:true"
+        ), calls);
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void wrongPasswordNeverOpensTransaction() {
+        when(passwordHashingService.matches(eq("alice"), eq("wrong"), anyString())).thenReturn(false);
+
+        assertThrows(AuthException.class, () -> authService.login("alice", "wrong", "10.0.0.1"));
+        verifyNoInteractions(transactionTemplate);
+        verify(userTokenRepository, never()).revokeAllTokensByUserId(anyLong());
+    }
+
+    @Test
+    void changePasswordHashesOutsideTransaction() {
+        when(passwordHashingService.encode("new-secret")).thenAnswer(inv -> {
+            calls.add("encode:" + inTransaction);
+            return "$2a$10$changed";
+        });
+        doAnswer(inv -> calls.add("updatePasswordHash:" + inTransaction))
+                .when(userRepository).updatePasswordHash(1L, "$2a$10$changed");
+        doAnswer(inv -> calls.add("revokeAccess:" + inTransaction))
+                .when(accessTokenDenylist).revokeAllForUser(1L);
+
+        authService.changePassword("alice", "secret", "new-secret");
+
+        assertEquals(List.of(
+                "matches:false",
+                "encode:false",
+                "updatePasswordHash:true",
+                "revoke:true",
+                "revokeAccess:true"
+        ), calls);
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void wrongOldPasswordNeverHashesOrOpensTransaction() {
+        when(passwordHashingService.matches(eq("alice"), eq("wrong"), anyString())).thenReturn(false);
+
+        assertThrows(AuthException.class, () -> authService.changePassword("alice", "wrong", "new-secret"));
+        verify(passwordHashingService, never()).encode(anyString());
+        verifyNoInteractions(transactionTemplate);
+    }
+}
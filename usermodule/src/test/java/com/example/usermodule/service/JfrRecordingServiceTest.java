@@ -0,0 +1,145 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.config.jfr.JfrEvents;
+import com.example.usermodule.config.jfr.SsoProvisionEvent;
+import com.example.usermodule.config.jfr.TokenVerifyEvent;
+import com.example.usermodule.data.pojo.JfrProperties;
+import com.example.usermodule.data.pojo.PasswordHashingProperties;
+import com.example.usermodule.exception.RecordingStateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrRecordingServiceTest {
+
+    private JfrRecordingService service;
+
+    @BeforeEach
+    void setUp() {
+        JfrProperties properties = new JfrProperties();
+        properties.setMaxDurationSeconds(30);
+        service = new JfrRecordingService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void recordsModuleEventsWithHashedUsernames() throws Exception {
+        service.start(10, null);
+
+        SsoProvisionEvent.start("google", "upsert_account").complete("alice@example.com", 1);
+        TokenVerifyEvent verify = new TokenVerifyEvent();
+        verify.begin();
+        verify.cached = true;
+        verify.valid = true;
+        verify.usernameHash = JfrEvents.usernameHash("alice@example.com");
+        verify.commit();
+
+        Path file = service.stop();
+        assertTrue(Files.size(file) > 0);
+        assertEquals("STOPPED", service.status().get("state"));
+        assertEquals(file, service.lastRecording());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent step = single(events, "jobportal.sso.ProvisionStep");
+        assertEquals("upsert_account", step.getString("step"));
+        assertEquals(1, step.getLong("rows"));
+        assertEquals(JfrEvents.usernameHash("alice@example.com"), step.getString("usernameHash"));
+        assertNotEquals("alice@example.com", step.getString("usernameHash"));
+
+        assertTrue(single(events, "jobportal.auth.TokenVerify").getBoolean("cached"));
+        assertTrue(events.stream().noneMatch(e -> e.getEventType().getName().equals("jdk.InitialEnvironmentVariable")));
+    }
+
+    @Test
+    void passwordCheckEventCarriesHashedUsername() throws Exception {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        PasswordHashingService hashing = new PasswordHashingService(
+                encoder, new PasswordHashingProperties(), new SimpleMeterRegistry());
+        service.start(10, null);
+
+        assertTrue(hashing.matches("alice", "secret", encoder.encode("secret")));
+
+        RecordedEvent check = single(RecordingFile.readAllEvents(service.stop()), "jobportal.auth.PasswordCheck");
+        assertTrue(check.getBoolean("matched"));
+        assertEquals(4, check.getInt("cost"));
+        assertEquals(JfrEvents.usernameHash("alice"), check.getString("usernameHash"));
+    }
+
+    @Test
+    void previousFileKeptUntilNextRecordingFinishes() throws Exception {
+        service.start(10, null);
+        Path first = service.stop();
+
+        // Có thể vẫn đang được tải về qua /stop hoặc /recording
+        service.start(10, null);
+        assertTrue(Files.exists(first));
+        assertEquals("RUNNING", service.status().get("state"));
+        assertTrue(Files.exists(first));
+
+        Path second = service.stop();
+        assertNotEquals(first, second);
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(second));
+
+        service.shutdown();
+        assertFalse(Files.exists(second));
+    }
+
+    @Test
+    void onlyOneBoundedRecordingAtATime() {
+        Map<String, Object> status = service.start(3600, null);
+        assertEquals("RUNNING", status.get("state"));
+        assertEquals(Duration.ofSeconds(30), status.get("duration"));
+
+        assertThrows(RecordingStateException.class, () -> service.start(null, null));
+        assertThrows(RecordingStateException.class, service::lastRecording);
+
+        service.stop();
+        assertEquals("RUNNING", service.start(null, null).get("state"));
+    }
+
+    @Test
+    void usernameHashIsKeyedHmac() {
+        try {
+            JfrEvents.setUsernameHashKey("key-a".getBytes());
+            String a = JfrEvents.usernameHash("alice@example.com");
+            assertEquals(a, JfrEvents.usernameHash("alice@example.com"));
+
+            JfrEvents.setUsernameHashKey("key-b".getBytes());
+            assertNotEquals(a, JfrEvents.usernameHash("alice@example.com"));
+            assertEquals(16, a.length());
+        } finally {
+            JfrEvents.setUsernameHashKey("test-key".getBytes());
+        }
+    }
+
+    @Test
+    void stopWithoutRecordingIsRejected() {
+        assertEquals("NONE", service.status().get("state"));
+        assertThrows(RecordingStateException.class, service::stop);
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
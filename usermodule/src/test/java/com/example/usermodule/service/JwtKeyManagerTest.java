@@ -0,0 +1,225 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.data.pojo.SigningKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Xoay vòng khoá ES256 trên bảng jwt_signing_keys giả lập trong bộ nhớ
+ */
+class JwtKeyManagerTest {
+
+    private KeyTable table;
+    private JwtProperties props;
+    private JwtKeyManager manager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        props = new JwtProperties();
+        props.setSecret("MySuperSecretKey12345678904566587sdfh");
+        props.setExpiration(3600000);
+        props.setAlgorithm("ES256");
+        props.getKeys().setRotationHours(168);
+        props.getKeys().setPublishDelayMinutes(10);
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+
+        table = new KeyTable();
+        manager = new JwtKeyManager(table, props, new ObjectMapper(), transactionTemplate);
+    }
+
+    @Test
+    void firstKeyIsActiveImmediately() {
+        manager.refresh();
+
+        assertEquals(1, table.rows.size());
+        SigningKey active = manager.activeKey();
+        assertFalse(active.activatesAt().isAfter(Instant.now()));
+        assertTrue(manager.jwksJson().contains(active.kid()));
+        assertEquals(List.of("advisory-lock"), table.locks);
+    }
+
+    @Test
+    void rotatedKeyIsPublishedBeforeSigningAndOldKeyStillVerifies() {
+        manager.refresh();
+        String oldKid = manager.activeKey().kid();
+        // Khoá cũ đã quá chu kỳ xoay vòng
+        table.shift(oldKid, Duration.ofHours(169).negated());
+
+        manager.refresh();
+        assertEquals(2, table.rows.size());
+        String newKid = table.newestKid();
+
+        // Trong publishDelay: vẫn ký bằng khoá cũ, khoá mới đã có trong JWKS
+        assertEquals(oldKid, manager.activeKey().kid());
+        assertTrue(manager.verificationKey(newKid).isPresent());
+        assertTrue(manager.jwksJson().contains(newKid));
+        assertTrue(table.row(newKid).activatesAt.isAfter(Instant.now().plus(Duration.ofMinutes(9))));
+
+        // Khoá mới kích hoạt: ký bằng khoá mới, khoá cũ vẫn verify được tới expires_at
+        table.shift(newKid, Duration.ofMinutes(11).negated());
+        manager.refresh();
+        assertEquals(newKid, manager.activeKey().kid());
+        assertTrue(manager.verificationKey(oldKid).isPresent());
+
+        // Khoá cũ hết hạn: bị xoá khỏi bảng và JWKS
+        table.row(oldKid).expiresAt = Instant.now().minusSeconds(1);
+        manager.refresh();
+        assertEquals(1, table.rows.size());
+        assertFalse(manager.jwksJson().contains(oldKid));
+    }
+
+    @Test
+    void noNewKeyWhileCurrentOneIsFresh() {
+        manager.refresh();
+        manager.refresh();
+
+        assertEquals(1, table.rows.size());
+        assertEquals(1, table.locks.size());
+    }
+
+    @Test
+    void unknownKidBurstReloadsOnce() throws Exception {
+        manager.refresh();
+        String kid = manager.activeKey().kid();
+        table.loads.set(0);
+
+        // Vừa nạp xong: kid lạ không chạm DB
+        assertTrue(manager.verificationKey("unknown").isEmpty());
+        assertEquals(0, table.loads.get());
+
+        // Node vừa khởi động (chưa nạp lần nào): nhiều kid ngẫu nhiên đồng thời chỉ gây 1 lần nạp
+        JwtKeyManager cold = new JwtKeyManager(table, props, new ObjectMapper(), mock(TransactionTemplate.class));
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Boolean> found = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            pool.submit(() -> {
+                start.await();
+                found.add(cold.verificationKey(UUID.randomUUID().toString()).isPresent());
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, table.loads.get());
+        assertFalse(found.contains(true));
+        assertTrue(cold.verificationKey(kid).isPresent());
+    }
+
+    private static final class KeyRow {
+        final String kid;
+        final byte[] publicKey;
+        final byte[] privateKey;
+        Instant activatesAt;
+        Instant expiresAt;
+
+        KeyRow(Object[] args) {
+            kid = (String) args[0];
+            publicKey = (byte[]) args[2];
+            privateKey = (byte[]) args[3];
+            activatesAt = ((Timestamp) args[5]).toInstant();
+            expiresAt = ((Timestamp) args[6]).toInstant();
+        }
+    }
+
+    // Chỉ hiểu đúng các câu SQL JwtKeyManager dùng
+    private static final class KeyTable extends JdbcTemplate {
+        final List<KeyRow> rows = new CopyOnWriteArrayList<>();
+        final List<String> locks = new CopyOnWriteArrayList<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        KeyRow row(String kid) {
+            return rows.stream().filter(r -> r.kid.equals(kid)).findFirst().orElseThrow();
+        }
+
+        String newestKid() {
+            return rows.stream().max(Comparator.comparing(r -> r.activatesAt)).orElseThrow().kid;
+        }
+
+        void shift(String kid, Duration by) {
+            KeyRow row = row(kid);
+            row.activatesAt = row.activatesAt.plus(by);
+            row.expiresAt = row.expiresAt.plus(by);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            assertTrue(sql.startsWith("SELECT kid, public_key"), sql);
+            loads.incrementAndGet();
+            List<KeyRow> ordered = new ArrayList<>(rows);
+            ordered.sort(Comparator.comparing(r -> r.activatesAt));
+            List<T> out = new ArrayList<>();
+            try {
+                for (int i = 0; i < ordered.size(); i++) {
+                    out.add(rowMapper.mapRow(resultSet(ordered.get(i)), i));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        @Override
+        public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+            assertTrue(sql.contains("pg_advisory_xact_lock"), sql);
+            locks.add("advisory-lock");
+            return null;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT INTO jwt_signing_keys")) {
+                rows.add(new KeyRow(args));
+                return 1;
+            }
+            assertTrue(sql.startsWith("DELETE FROM jwt_signing_keys"), sql);
+            Instant now = ((Timestamp) args[0]).toInstant();
+            int before = rows.size();
+            rows.removeIf(r -> r.expiresAt.isBefore(now) && !r.kid.equals(args[1]));
+            return before - rows.size();
+        }
+
+        private static ResultSet resultSet(KeyRow row) throws SQLException {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn(row.kid);
+            when(rs.getBytes(2)).thenReturn(row.publicKey);
+            when(rs.getBytes(3)).thenReturn(row.privateKey);
+            when(rs.getTimestamp(4)).thenReturn(Timestamp.from(row.activatesAt));
+            when(rs.getTimestamp(5)).thenReturn(Timestamp.from(row.expiresAt));
+            return rs;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * verify chỉ nhận access token; token HS256 (không có kid) khi đã chuyển sang ES256 chỉ nhận trong giai đoạn chuyển tiếp
+ * (mặc định: lúc khởi động + expiration)
+ */
+class JwtServiceTest {
+
+    private JwtProperties props;
+    private JwtService jwtService;
+    private String legacyToken;
+
+    @BeforeEach
+    void setUp() {
+        props = new JwtProperties();
+        props.setSecret("MySuperSecretKey12345678904566587sdfh");
+        props.setExpiration(3600000);
+        props.setAlgorithm("ES256");
+        jwtService = new JwtService(props, new PermissionRegistry(null), new JwtKeyManager(null, props, null, null));
+
+        legacyToken = Jwts.builder()
+                .setSubject("alice")
+                .claim("roles", List.of("USER"))
+                .setExpiration(Date.from(Instant.now().plusSeconds(600)))
+                .signWith(Keys.hmacShaKeyFor(props.getSecret().getBytes()))
+                .compact();
+    }
+
+    @Test
+    void hs256AcceptedForOneAccessTokenLifetimeByDefault() {
+        assertEquals("alice", jwtService.verify(legacyToken).getSubject());
+        assertTrue(jwtService.acceptsSigningKey(null));
+
+        // Hết 1 vòng đời access token kể từ lúc khởi động: token HS256 cũ đều đã hết hạn
+        props.setExpiration(0);
+        JwtService restarted = new JwtService(props, new PermissionRegistry(null), new JwtKeyManager(null, props, null, null));
+        assertThrows(SignatureException.class, () -> restarted.verify(legacyToken));
+        assertFalse(restarted.acceptsSigningKey(null));
+    }
+
+    @Test
+    void hs256AcceptedOnlyUntilCutoff() {
+        props.setLegacyHs256Until(Instant.now().plus(Duration.ofHours(1)));
+        assertEquals("alice", jwtService.verify(legacyToken).getSubject());
+
+        props.setLegacyHs256Until(Instant.now().minusSeconds(1));
+        assertThrows(SignatureException.class, () -> jwtService.verify(legacyToken));
+    }
+
+    @Test
+    void hs256AlwaysAcceptedInHs256Mode() {
+        props.setAlgorithm("HS256");
+        assertEquals("alice", jwtService.verify(legacyToken).getSubject());
+    }
+
+    @Test
+    void refreshTokenIsNotAccepted() {
+        props.setAlgorithm("HS256");
+        props.setRefreshExpiration(600000);
+
+        String access = jwtService.generateToken("alice", Set.of("USER"), Set.of());
+        assertEquals("alice", jwtService.verify(access).getSubject());
+        assertThrows(UnsupportedJwtException.class, () -> jwtService.verify(jwtService.generateRefreshToken("alice")));
+
+        // Refresh token phát trước khi có token_use (không có roles)
+        String legacyRefresh = Jwts.builder()
+                .setSubject("alice")
+                .setExpiration(Date.from(Instant.now().plusSeconds(600)))
+                .signWith(Keys.hmacShaKeyFor(props.getSecret().getBytes()))
+                .compact();
+        assertThrows(UnsupportedJwtException.class, () -> jwtService.verify(legacyRefresh));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginStateBufferTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private LoginStateBuffer buffer;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        buffer = new LoginStateBuffer(jdbcTemplate, new SimpleMeterRegistry());
+        user = new User();
+        user.setId(1L);
+        user.setFailedAttempts(0);
+    }
+
+    @Test
+    void resetOnlyClearsExpiredLock() {
+        buffer.recordSuccess(1L);
+        buffer.flush();
+
+        verify(jdbcTemplate).batchUpdate(
+                argThat((String sql) -> sql.contains("CASE WHEN locked_until > ? THEN locked_until END")),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0).length == 4));
+    }
+
+    @Test
+    void failedFlushIsRequeuedAndMergedWithNewerFailures() {
+        buffer.recordFailure(user);
+        buffer.recordFailure(user);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new TransientDataAccessResourceException("db down"));
+
+        buffer.flush();
+        assertEquals(2, buffer.failedAttempts(user));
+
+        buffer.recordFailure(user);
+        assertEquals(3, buffer.failedAttempts(user));
+
+        reset(jdbcTemplate);
+        buffer.flush();
+        verify(jdbcTemplate).batchUpdate(
+                argThat((String sql) -> sql.contains("COALESCE(failed_attempts, 0) + ?")),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && Integer.valueOf(3).equals(rows.get(0)[1])));
+        assertEquals(0, buffer.failedAttempts(user));
+    }
+
+    @Test
+    void newerSuccessWinsOverRequeuedFailures() {
+        user.setFailedAttempts(4);
+        buffer.recordFailure(user);
+        // Login thành công xen vào trong lúc batch đang lỗi
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(inv -> {
+            buffer.recordSuccess(1L);
+            throw new TransientDataAccessResourceException("db down");
+        });
+        buffer.flush();
+
+        assertEquals(0, buffer.failedAttempts(user));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.entity.Permission;
+import com.example.usermodule.data.pojo.PermissionBits;
+import com.example.usermodule.data.pojo.PermissionCatalog;
+import com.example.usermodule.repository.PermissionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Bitmap permission: encode -> base64url (như claim pbm) -> decode theo version
+ */
+class PermissionRegistryTest {
+
+    @Test
+    void bitmapRoundTripsThroughTokenEncoding() {
+        // > 64 permission để bitmap trải qua nhiều word
+        List<String> codes = IntStream.range(0, 130).mapToObj(i -> "PERM_" + i).toList();
+        PermissionCatalog catalog = new PermissionCatalog(codes);
+        Set<String> granted = Set.of("PERM_0", "PERM_63", "PERM_64", "PERM_129");
+
+        PermissionBits bits = catalog.encode(granted);
+        String claim = Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+        PermissionBits decoded = catalog.decode(Base64.getUrlDecoder().decode(claim));
+
+        assertEquals(Set.copyOf(decoded.codes()), granted);
+        assertTrue(decoded.has("PERM_129"));
+        assertFalse(decoded.has("PERM_1"));
+        assertFalse(decoded.has("UNKNOWN"));
+        assertEquals(PermissionBits.AUTHORITY, decoded.getAuthority());
+    }
+
+    @Test
+    void emptySetAndUnknownCodes() {
+        PermissionCatalog catalog = new PermissionCatalog(List.of("JOB_POST", "JOB_EDIT"));
+
+        assertEquals(List.of(), catalog.decode(catalog.encode(Set.of()).toByteArray()).codes());
+        // Permission ngoài catalog: token phải dùng dạng chuỗi
+        assertNull(catalog.encode(Set.of("JOB_POST", "USER_DELETE")));
+        // Bit nằm ngoài catalog: không giải mã
+        assertNull(catalog.decode(new byte[]{0b100}));
+    }
+
+    @Test
+    void registryKeepsPreviousVersionsForDecoding() {
+        PermissionRepository repository = mock(PermissionRepository.class);
+        List<Permission> rows = new ArrayList<>(List.of(permission(1, "JOB_POST"), permission(2, "JOB_EDIT")));
+        when(repository.findAll(any(Sort.class))).thenAnswer(inv -> List.copyOf(rows));
+
+        PermissionRegistry registry = new PermissionRegistry(repository);
+        registry.refresh();
+        PermissionCatalog v1 = registry.current();
+        byte[] issued = v1.encode(Set.of("JOB_EDIT")).toByteArray();
+
+        rows.add(0, permission(0, "USER_READ"));
+        registry.refresh();
+        PermissionCatalog v2 = registry.current();
+
+        assertNotEquals(v1.getVersion(), v2.getVersion());
+        // Token phát theo v1 vẫn giải mã đúng code, không lệch ordinal theo v2
+        assertEquals(List.of("JOB_EDIT"), registry.byVersion(v1.getVersion()).orElseThrow().decode(issued).codes());
+        assertEquals(List.of("JOB_POST"), v2.decode(issued).codes());
+        assertTrue(registry.byVersion("unknown").isEmpty());
+    }
+
+    private static Permission permission(long id, String code) {
+        Permission permission = new Permission();
+        permission.setId(id);
+        permission.setCode(code);
+        return permission;
+    }
+}
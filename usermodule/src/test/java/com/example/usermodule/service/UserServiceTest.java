@@ -0,0 +1,75 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.UserDTO;
+import com.example.usermodule.data.pojo.UserDetailView;
+import com.example.usermodule.data.pojo.UserProfileView;
+import com.example.usermodule.repository.RolePermissionRepository;
+import com.example.usermodule.repository.UserRepository;
+import com.example.usermodule.repository.UserRoleRepository;
+import com.example.usermodule.repository.UserTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserServiceTest {
+
+    private static final long USER_ID = 7L;
+
+    private UserRepository userRepository;
+    private UserRoleRepository userRoleRepository;
+    private RolePermissionRepository rolePermissionRepository;
+    private RbacCache rbacCache;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userRoleRepository = mock(UserRoleRepository.class);
+        rolePermissionRepository = mock(RolePermissionRepository.class);
+        rbacCache = new RbacCache(userRoleRepository, rolePermissionRepository, new SimpleMeterRegistry());
+        userService = new UserService(userRepository, rbacCache, mock(UserTokenRepository.class));
+
+        UserDetailView detail = mock(UserDetailView.class);
+        when(detail.getId()).thenReturn(USER_ID);
+        when(detail.getUsername()).thenReturn("alice");
+        when(detail.getRoleIds()).thenReturn(new Long[]{1L, 2L});
+        when(detail.getRoles()).thenReturn(new String[]{"EMPLOYER", "VIEWER"});
+        when(detail.getPermissionRoleIds()).thenReturn(new Long[]{1L, 1L});
+        when(detail.getPermissionCodes()).thenReturn(new String[]{"JOB_EDIT", "JOB_POST"});
+        when(userRepository.findUserDetail(USER_ID)).thenReturn(Optional.of(detail));
+
+        UserProfileView profile = mock(UserProfileView.class);
+        when(profile.getId()).thenReturn(USER_ID);
+        when(profile.getUsername()).thenReturn("alice");
+        when(userRepository.findUserWithProfile(USER_ID)).thenReturn(Optional.of(profile));
+    }
+
+    @Test
+    void firstCallSeedsBothCacheLevels() {
+        UserDTO first = userService.getUserDetail(USER_ID).orElseThrow();
+        assertEquals(Set.of("EMPLOYER", "VIEWER"), first.getRoles());
+        assertEquals(Set.of("JOB_EDIT", "JOB_POST"), first.getPermissions());
+
+        // Role không có permission vẫn được cache (tập rỗng)
+        assertEquals(Set.of(), rbacCache.permissionsOfRole(2L));
+        assertTrue(rbacCache.getIfPresent(USER_ID).isPresent());
+    }
+
+    @Test
+    void secondCallUsesCacheInsteadOfAggregateQuery() {
+        userService.getUserDetail(USER_ID);
+        UserDTO second = userService.getUserDetail(USER_ID).orElseThrow();
+
+        assertEquals(Set.of("EMPLOYER", "VIEWER"), second.getRoles());
+        assertEquals(Set.of("JOB_EDIT", "JOB_POST"), second.getPermissions());
+        verify(userRepository, times(1)).findUserDetail(USER_ID);
+        verify(userRepository, times(1)).findUserWithProfile(USER_ID);
+        verifyNoInteractions(userRoleRepository, rolePermissionRepository);
+    }
+}
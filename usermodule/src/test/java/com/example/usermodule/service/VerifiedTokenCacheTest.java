@@ -0,0 +1,90 @@
+package com.example.usermodule.service;
+
+import com.example.usermodule.data.pojo.JwtProperties;
+import com.example.usermodule.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Token lấy từ cache vẫn bị từ chối khi khoá ký không còn được chấp nhận (hết giai đoạn HS256, khoá ES256 bị gỡ)
+ */
+class VerifiedTokenCacheTest {
+
+    private JwtProperties props;
+    private JwtKeyManager keyManager;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        props = new JwtProperties();
+        props.setSecret("MySuperSecretKey12345678904566587sdfh");
+        props.setExpiration(3600000);
+        props.setAlgorithm("ES256");
+
+        keyManager = mock(JwtKeyManager.class);
+        when(keyManager.isEnabled()).thenReturn(true);
+        when(keyManager.verificationKey(anyString())).thenReturn(Optional.empty());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtService jwtService = new JwtService(props, new PermissionRegistry(null), keyManager);
+        cache = new VerifiedTokenCache(jwtService, new AuthorityRegistry(meterRegistry), new PermissionRegistry(null),
+                mock(UserRepository.class), mock(RbacCache.class), props, meterRegistry);
+    }
+
+    @Test
+    void cachedHs256TokenRejectedAfterCutoff() {
+        String token = Jwts.builder()
+                .setSubject("alice")
+                .claim("roles", List.of("USER"))
+                .setExpiration(Date.from(Instant.now().plusSeconds(600)))
+                .signWith(Keys.hmacShaKeyFor(props.getSecret().getBytes()))
+                .compact();
+
+        props.setLegacyHs256Until(Instant.now().plus(Duration.ofHours(1)));
+        assertEquals("alice", cache.verify(token).getToken().getSubject());
+        assertEquals("alice", cache.verify(token).getToken().getSubject());
+
+        props.setLegacyHs256Until(Instant.now().minusSeconds(1));
+        assertThrows(SignatureException.class, () -> cache.verify(token));
+    }
+
+    @Test
+    void cachedEs256TokenRejectedOnceKeyIsRetired() {
+        KeyPair pair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        when(keyManager.verificationKey("k1")).thenReturn(Optional.of((ECPublicKey) pair.getPublic()));
+        when(keyManager.isKnownKey("k1")).thenReturn(true);
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "k1")
+                .setSubject("alice")
+                .claim("token_use", "access")
+                .claim("roles", List.of("USER"))
+                .setExpiration(Date.from(Instant.now().plusSeconds(600)))
+                .signWith(pair.getPrivate(), SignatureAlgorithm.ES256)
+                .compact();
+
+        assertEquals("k1", cache.verify(token).getToken().getKeyId());
+        cache.verify(token);
+        verify(keyManager, times(1)).verificationKey("k1");
+
+        // Khoá bị xoá khỏi jwt_signing_keys: entry cache không còn dùng được
+        when(keyManager.isKnownKey("k1")).thenReturn(false);
+        when(keyManager.verificationKey("k1")).thenReturn(Optional.empty());
+        assertThrows(SignatureException.class, () -> cache.verify(token));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestOperations;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * JWKS cache: trả bản cũ khi nạp lại nền, giữ bản cũ khi provider lỗi, chỉ 1 lần gọi provider khi nhiều login cùng chờ
+ */
+class CachedJwkSourceTest {
+
+    private static final String URI = "https://provider.test/jwks";
+
+    private RestOperations rest;
+    private Queue<Runnable> background;
+    private SimpleMeterRegistry meterRegistry;
+    private SsoClientProperties properties;
+    private ECKey k1;
+    private ECKey k2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rest = mock(RestOperations.class);
+        background = new ArrayDeque<>();
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SsoClientProperties();
+        properties.setJwksMaxStaleHours(24);
+        properties.setJwksMinReloadMs(0);
+        k1 = new ECKeyGenerator(Curve.P_256).keyID("k1").generate();
+        k2 = new ECKeyGenerator(Curve.P_256).keyID("k2").generate();
+    }
+
+    @Test
+    void staleSetIsServedWhileRefreshingInBackground() throws Exception {
+        // refresh = 0: mọi lần đọc sau lần nạp đầu đều coi là cũ
+        properties.setJwksRefreshMinutes(0);
+        when(rest.getForObject(eq(URI), eq(String.class))).thenReturn(jwks(k1), jwks(k2));
+        CachedJwkSource source = source();
+
+        assertEquals(List.of("k1"), kids(source, "k1"));
+        verify(rest, times(1)).getForObject(URI, String.class);
+
+        // Bản cũ trả ngay, chỉ 1 lần nạp nền dù có nhiều request
+        assertEquals(List.of("k1"), kids(source, "k1"));
+        assertEquals(List.of("k1"), kids(source, "k1"));
+        verify(rest, times(1)).getForObject(URI, String.class);
+        assertEquals(1, background.size());
+
+        background.poll().run();
+        verify(rest, times(2)).getForObject(URI, String.class);
+        assertEquals(List.of("k2"), kids(source, "k2"));
+        verify(rest, times(2)).getForObject(URI, String.class);
+    }
+
+    @Test
+    void failedReloadKeepsCachedSet() throws Exception {
+        // max-stale = 0: mọi lần đọc đều nạp đồng bộ
+        properties.setJwksMaxStaleHours(0);
+        when(rest.getForObject(eq(URI), eq(String.class)))
+                .thenReturn(jwks(k1))
+                .thenThrow(new ResourceAccessException("read timed out"));
+        CachedJwkSource source = source();
+
+        assertEquals(List.of("k1"), kids(source, "k1"));
+        assertEquals(List.of("k1"), kids(source, "k1"));
+        verify(rest, times(2)).getForObject(URI, String.class);
+        assertEquals(1, meterRegistry.counter("sso.jwks.refresh", "registration", "google", "result", "failure").count());
+    }
+
+    @Test
+    void failedBackgroundRefreshKeepsCachedSetAndRetries() throws Exception {
+        properties.setJwksRefreshMinutes(0);
+        when(rest.getForObject(eq(URI), eq(String.class)))
+                .thenReturn(jwks(k1))
+                .thenThrow(new ResourceAccessException("read timed out"))
+                .thenReturn(jwks(k1, k2));
+        CachedJwkSource source = source();
+        kids(source, "k1");
+
+        source.refreshIfStale();
+        background.poll().run();
+        assertEquals(List.of("k1"), kids(source, "k1"));
+
+        // Lần nạp nền lỗi không chặn lần sau
+        background.poll().run();
+        assertEquals(List.of("k2"), kids(source, "k2"));
+        verify(rest, times(3)).getForObject(URI, String.class);
+    }
+
+    @Test
+    void concurrentColdLoadsCallProviderOnce() throws Exception {
+        when(rest.getForObject(eq(URI), eq(String.class))).thenAnswer(inv -> {
+            Thread.sleep(100);
+            return jwks(k1);
+        });
+        CachedJwkSource source = source();
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        CountDownLatch start = new CountDownLatch(1);
+        List<List<String>> results = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            pool.submit(() -> {
+                start.await();
+                results.add(kids(source, "k1"));
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(32, results.size());
+        assertTrue(results.stream().allMatch(List.of("k1")::equals));
+        verify(rest, times(1)).getForObject(URI, String.class);
+    }
+
+    private CachedJwkSource source() {
+        return new CachedJwkSource("google", URI, rest, background::add, properties, meterRegistry);
+    }
+
+    private static List<String> kids(CachedJwkSource source, String kid) throws Exception {
+        return source.get(new JWKSelector(new JWKMatcher.Builder().keyID(kid).build()), null)
+                .stream().map(JWK::getKeyID).toList();
+    }
+
+    private static String jwks(ECKey... keys) {
+        return new JWKSet(List.of(keys).stream().map(k -> (JWK) k.toPublicJWK()).toList()).toString();
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.usermodule.service.sso;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provider OIDC/OAuth2 giả chạy trong process (JDK HttpServer), dùng cho test và benchmark SSO offline:
+ * - /.well-known/openid-configuration, /jwks (RS256, xoay khoá bằng rotateKey)
+ * - /authorize: redirect về redirect_uri kèm code, nhớ nonce theo code
+ * - /token: access token + ID token ký RS256 (email, name, picture)
+ * - /userinfo (dạng Google), /me (dạng Facebook, picture.data.url)
+ * latencyMillis giả lập độ trễ mạng tới provider cho mỗi request
+ */
+public class FakeOidcProvider implements AutoCloseable {
+
+    public static final String CLIENT_ID = "fake-client";
+    public static final String CLIENT_SECRET = "fake-secret";
+    public static final String EMAIL = "sso.user@example.com";
+
+    static {
+        // Tắt Nagle phía server: không thì mỗi response chờ delayed ACK (~40ms), che mất độ trễ cần đo
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, String> nonceByCode = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    private volatile RSAKey signingKey;
+    private volatile JWKSet publishedKeys;
+    private volatile long latencyMillis;
+
+    public FakeOidcProvider() throws IOException {
+        rotateKey();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/.well-known/openid-configuration", ex -> respond(ex, 200, discovery()));
+        server.createContext("/jwks", ex -> respond(ex, 200, publishedKeys.toString()));
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/token", this::token);
+        server.createContext("/userinfo", ex -> respond(ex, 200, """
+                {"sub":"fake-sub","email":"%s","name":"SSO User","picture":"https://img.example.com/u.png"}"""
+                .formatted(EMAIL)));
+        server.createContext("/me", ex -> respond(ex, 200, """
+                {"id":"1001","email":"%s","name":"SSO User","picture":{"data":{"url":"https://img.example.com/u.png"}}}"""
+                .formatted(EMAIL)));
+        server.start();
+    }
+
+    public String issuer() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    // Số request đã nhận theo path
+    public int hits(String path) {
+        AtomicInteger count = hits.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Sinh khoá ký mới (kid mới), JWKS chỉ công bố khoá hiện tại như provider thật sau khi xoay
+     */
+    public synchronized void rotateKey() {
+        try {
+            signingKey = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        publishedKeys = new JWKSet(signingKey.toPublicJWK());
+    }
+
+    public ClientRegistration oidcRegistration() {
+        return ClientRegistration.withRegistrationId("fake-oidc")
+                .clientId(CLIENT_ID)
+                .clientSecret(CLIENT_SECRET)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:8080/login/oauth2/code/fake-oidc")
+                .scope("openid", "email", "profile")
+                .authorizationUri(issuer() + "/authorize")
+                .tokenUri(issuer() + "/token")
+                .userInfoUri(issuer() + "/userinfo")
+                .userNameAttributeName("sub")
+                .jwkSetUri(issuer() + "/jwks")
+                .issuerUri(issuer())
+                .build();
+    }
+
+    public ClientRegistration oauth2Registration() {
+        return ClientRegistration.withRegistrationId("fake-oauth2")
+                .clientId(CLIENT_ID)
+                .clientSecret(CLIENT_SECRET)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:8080/login/oauth2/code/fake-oauth2")
+                .scope("email", "public_profile")
+                .authorizationUri(issuer() + "/authorize")
+                .tokenUri(issuer() + "/token")
+                .userInfoUri(issuer() + "/me")
+                .userNameAttributeName("id")
+                .build();
+    }
+
+    // ID token ký bằng khoá hiện tại
+    public String idToken(String nonce) {
+        Instant now = Instant.now();
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(issuer())
+                .subject("fake-sub")
+                .audience(CLIENT_ID)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(300)))
+                .claim("email", EMAIL)
+                .claim("email_verified", true)
+                .claim("name", "SSO User")
+                .claim("picture", "https://img.example.com/u.png");
+        if (nonce != null) claims.claim("nonce", nonce);
+
+        RSAKey key = signingKey;
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims.build());
+        try {
+            jwt.sign(new RSASSASigner(key));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String discovery() {
+        return """
+                {"issuer":"%1$s","authorization_endpoint":"%1$s/authorize","token_endpoint":"%1$s/token",\
+                "userinfo_endpoint":"%1$s/userinfo","jwks_uri":"%1$s/jwks","response_types_supported":["code"],\
+                "subject_types_supported":["public"],"id_token_signing_alg_values_supported":["RS256"]}"""
+                .formatted(issuer());
+    }
+
+    private void authorize(HttpExchange ex) throws IOException {
+        Map<String, String> params = parseQuery(ex.getRequestURI().getRawQuery());
+        String code = UUID.randomUUID().toString();
+        if (params.containsKey("nonce")) nonceByCode.put(code, params.get("nonce"));
+
+        String location = params.get("redirect_uri") + "?code=" + code
+                + (params.containsKey("state") ? "&state=" + params.get("state") : "");
+        ex.getResponseHeaders().set("Location", URI.create(location).toString());
+        respond(ex, 302, "");
+    }
+
+    private void token(HttpExchange ex) throws IOException {
+        String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String code = parseQuery(body).get("code");
+        String nonce = code == null ? null : nonceByCode.remove(code);
+        respond(ex, 200, """
+                {"access_token":"%s","token_type":"Bearer","expires_in":3600,"scope":"openid email profile","id_token":"%s"}"""
+                .formatted(UUID.randomUUID(), idToken(nonce)));
+    }
+
+    private void respond(HttpExchange ex, int status, String body) throws IOException {
+        hits.computeIfAbsent(ex.getHttpContext().getPath(), p -> new AtomicInteger()).incrementAndGet();
+        try (ex) {
+            long latency = latencyMillis;
+            if (latency > 0) Thread.sleep(latency);
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            if (!body.isEmpty()) ex.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.config.sso.SsoClientConfig;
+import com.example.usermodule.data.pojo.SsoClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationExchange;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponse;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.net.http.HttpClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Client SSO đã tinh chỉnh (SsoClientConfig + SsoIdTokenDecoderFactory) chạy với FakeOidcProvider
+ */
+class SsoClientFakeProviderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SsoClientConfig config = new SsoClientConfig();
+    private SsoClientProperties properties;
+    private FakeOidcProvider provider;
+    private HttpClient httpClient;
+    private ClientHttpRequestFactory requestFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = new FakeOidcProvider();
+        properties = new SsoClientProperties();
+        httpClient = config.ssoHttpClient(properties);
+        requestFactory = config.ssoRequestFactory(httpClient, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClient.close();
+        provider.close();
+    }
+
+    @Test
+    void jwksIsFetchedOnceForRepeatedLogins() {
+        JwtDecoder decoder = decoderFactory().createDecoder(provider.oidcRegistration());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FakeOidcProvider.EMAIL, decoder.decode(provider.idToken(null)).getClaimAsString("email"));
+        }
+        assertEquals(1, provider.hits("/jwks"));
+    }
+
+    @Test
+    void unknownKidReloadsJwksAfterProviderRotation() {
+        properties.setJwksMinReloadMs(0);
+        JwtDecoder decoder = decoderFactory().createDecoder(provider.oidcRegistration());
+        decoder.decode(provider.idToken(null));
+
+        provider.rotateKey();
+        assertEquals(FakeOidcProvider.EMAIL, decoder.decode(provider.idToken(null)).getClaimAsString("email"));
+        assertEquals(2, provider.hits("/jwks"));
+    }
+
+    @Test
+    void loginSkipsUserInfoWhenIdTokenHasProfileClaims() {
+        ClientRegistration registration = provider.oidcRegistration();
+        OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> tokenClient =
+                config.ssoAccessTokenResponseClient(requestFactory);
+        OAuth2AccessTokenResponse tokens = tokenClient.getTokenResponse(codeGrant(registration));
+
+        Jwt jwt = decoderFactory().createDecoder(registration)
+                .decode((String) tokens.getAdditionalParameters().get("id_token"));
+        OidcIdToken idToken = new OidcIdToken(jwt.getTokenValue(), jwt.getIssuedAt(), jwt.getExpiresAt(), jwt.getClaims());
+
+        CustomOidcUserService userService = new CustomOidcUserService(
+                mock(SsoProvisioningService.class), config.ssoOAuth2UserService(requestFactory), properties);
+        OidcUser user = userService.loadUser(new OidcUserRequest(registration, tokens.getAccessToken(), idToken));
+
+        assertEquals(FakeOidcProvider.EMAIL, user.getEmail());
+        assertEquals(1, provider.hits("/token"));
+        assertEquals(0, provider.hits("/userinfo"));
+    }
+
+    private SsoIdTokenDecoderFactory decoderFactory() {
+        return new SsoIdTokenDecoderFactory(config.ssoRestOperations(requestFactory), properties, meterRegistry);
+    }
+
+    static OAuth2AuthorizationCodeGrantRequest codeGrant(ClientRegistration registration) {
+        OAuth2AuthorizationRequest request = OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri(registration.getProviderDetails().getAuthorizationUri())
+                .clientId(registration.getClientId())
+                .redirectUri(registration.getRedirectUri())
+                .scopes(registration.getScopes())
+                .state("state")
+                .build();
+        OAuth2AuthorizationResponse response = OAuth2AuthorizationResponse.success("code")
+                .redirectUri(registration.getRedirectUri())
+                .state("state")
+                .build();
+        return new OAuth2AuthorizationCodeGrantRequest(registration, new OAuth2AuthorizationExchange(request, response));
+    }
+}
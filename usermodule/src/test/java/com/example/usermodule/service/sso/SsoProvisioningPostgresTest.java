@@ -0,0 +1,180 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.data.entity.Role;
+import com.example.usermodule.data.pojo.TokenPair;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.repository.RolePermissionRepository;
+import com.example.usermodule.repository.UserRoleRepository;
+import com.example.usermodule.service.JwtService;
+import com.example.usermodule.service.PasswordHashingService;
+import com.example.usermodule.service.RbacCache;
+import com.example.usermodule.util.TokenDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chạy CTE provisioning thật trên Postgres (Testcontainers): lượt đầu tạo user + profile + refresh token,
+ * lượt sau dùng lại user, cập nhật profile và xoay refresh token. Bỏ qua khi máy không có Docker
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SsoProvisioningPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    // Cùng cột với entity User / UserProfile / UserToken (Hibernate ddl-auto) + index trong schema.sql
+    private static final String SCHEMA = """
+            DROP TABLE IF EXISTS user_tokens, user_profiles, users;
+            CREATE TABLE users (
+                id bigserial PRIMARY KEY, uid uuid, username varchar(255), email varchar(255), phone varchar(255),
+                password_hash varchar(255), active smallint, failed_attempts integer,
+                created_at timestamp, last_login timestamp, locked_until timestamp);
+            CREATE UNIQUE INDEX ux_users_username ON users (username);
+            CREATE TABLE user_profiles (
+                id bigserial PRIMARY KEY, user_id bigint, name varchar(255), avatar varchar(255),
+                gender smallint, birth_date date, headline varchar(255), note varchar(255));
+            CREATE TABLE user_tokens (
+                id bigserial PRIMARY KEY, user_id bigint, token_hash bytea,
+                created_at timestamp, expires_at timestamp, revoked boolean);
+            CREATE UNIQUE INDEX ux_user_tokens_token_hash ON user_tokens (token_hash);
+            """;
+
+    private final AtomicInteger issued = new AtomicInteger();
+
+    private JdbcTemplate jdbc;
+    private SsoProvisioningService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbc.execute(SCHEMA);
+
+        UserRoleRepository userRoleRepository = mock(UserRoleRepository.class);
+        RolePermissionRepository rolePermissionRepository = mock(RolePermissionRepository.class);
+        Role role = new Role();
+        role.setId(1L);
+        role.setName("USER");
+        when(userRoleRepository.findRoleEntitiesByUserId(anyLong())).thenReturn(List.of(role));
+        when(rolePermissionRepository.findPermissionsByRoleId(1L)).thenReturn(List.of());
+
+        JwtService jwtService = mock(JwtService.class);
+        when(jwtService.generateTokenPair(anyString(), any(), any(), any())).thenAnswer(inv -> {
+            int n = issued.incrementAndGet();
+            return new TokenPair("access-" + n, "refresh-" + n);
+        });
+
+        RbacCache rbacCache = new RbacCache(userRoleRepository, rolePermissionRepository, new SimpleMeterRegistry());
+        service = new SsoProvisioningService(jdbc, rbacCache, jwtService);
+    }
+
+    @Test
+    void firstLoginCreatesUserProfileAndRefreshToken() {
+        AuthResponse auth = service.provision("google", "a@example.com", "g-1", "Alice", "https://img/a.png");
+
+        assertEquals("a@example.com", auth.getUsername());
+        assertEquals(Set.of("USER"), auth.getRoles());
+
+        Map<String, Object> user = jdbc.queryForMap("SELECT * FROM users");
+        assertEquals("a@example.com", user.get("username"));
+        assertEquals("a@example.com", user.get("email"));
+        assertEquals(PasswordHashingService.UNUSABLE_PASSWORD, user.get("password_hash"));
+        assertEquals(1, ((Number) user.get("active")).intValue());
+        assertNotNull(user.get("uid"));
+        assertNotNull(user.get("last_login"));
+
+        Map<String, Object> profile = jdbc.queryForMap("SELECT * FROM user_profiles");
+        assertEquals(user.get("id"), profile.get("user_id"));
+        assertEquals("Alice", profile.get("name"));
+        assertEquals("https://img/a.png", profile.get("avatar"));
+
+        Map<String, Object> token = jdbc.queryForMap("SELECT * FROM user_tokens");
+        assertEquals(user.get("id"), token.get("user_id"));
+        assertArrayEquals(TokenDigest.sha256("refresh-1"), (byte[]) token.get("token_hash"));
+        assertEquals(false, token.get("revoked"));
+    }
+
+    @Test
+    void repeatLoginReusesUserUpdatesProfileAndRotatesToken() {
+        service.provision("google", "a@example.com", "g-1", "Alice", "https://img/a.png");
+        Map<String, Object> first = jdbc.queryForMap("SELECT id, uid, last_login FROM users");
+
+        // Tên mới, provider không trả avatar: giữ avatar cũ
+        AuthResponse auth = service.provision("google", "a@example.com", "g-1", "Alice B", null);
+
+        assertEquals("a@example.com", auth.getUsername());
+        Map<String, Object> user = jdbc.queryForMap("SELECT id, uid, last_login FROM users");
+        assertEquals(first.get("id"), user.get("id"));
+        assertEquals(first.get("uid"), user.get("uid"));
+        assertFalse(((Timestamp) user.get("last_login")).before((Timestamp) first.get("last_login")));
+
+        Map<String, Object> profile = jdbc.queryForMap("SELECT * FROM user_profiles");
+        assertEquals("Alice B", profile.get("name"));
+        assertEquals("https://img/a.png", profile.get("avatar"));
+
+        List<Map<String, Object>> tokens = jdbc.queryForList("SELECT token_hash, revoked FROM user_tokens ORDER BY id");
+        assertEquals(2, tokens.size());
+        assertEquals(true, tokens.get(0).get("revoked"));
+        assertEquals(false, tokens.get(1).get("revoked"));
+        assertArrayEquals(TokenDigest.sha256("refresh-2"), (byte[]) tokens.get(1).get("token_hash"));
+    }
+
+    @Test
+    void sharedEmailUpdatesOnlyTheOldestAccount() {
+        Long oldest = jdbc.queryForObject("INSERT INTO users (username, email, active, failed_attempts) "
+                + "VALUES ('alice', 'a@example.com', 1, 0) RETURNING id", Long.class);
+        Long other = jdbc.queryForObject("INSERT INTO users (username, email, active, failed_attempts) "
+                + "VALUES ('alice2', 'a@example.com', 1, 0) RETURNING id", Long.class);
+        jdbc.update("INSERT INTO user_profiles (user_id, name) VALUES (?, 'Old'), (?, 'Other')", oldest, other);
+
+        AuthResponse auth = service.provision("google", "a@example.com", "g-1", "Alice", null);
+
+        assertEquals("alice", auth.getUsername());
+        assertEquals(2, jdbc.queryForObject("SELECT count(*) FROM users", Integer.class));
+        assertNotNull(jdbc.queryForObject("SELECT last_login FROM users WHERE id = ?", Timestamp.class, oldest));
+        assertNull(jdbc.queryForObject("SELECT last_login FROM users WHERE id = ?", Timestamp.class, other));
+        assertEquals("Alice", jdbc.queryForObject("SELECT name FROM user_profiles WHERE user_id = ?", String.class, oldest));
+        assertEquals("Other", jdbc.queryForObject("SELECT name FROM user_profiles WHERE user_id = ?", String.class, other));
+        assertEquals(oldest, jdbc.queryForObject("SELECT user_id FROM user_tokens", Long.class));
+    }
+
+    @Test
+    void loginWithoutEmailUsesFallbackUsername() {
+        service.provision("facebook", null, "fb-123", "Bob", null);
+        service.provision("facebook", null, "fb-123", "Bob", null);
+
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM users WHERE username = 'fb-123' AND email IS NULL", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM user_profiles", Integer.class));
+    }
+
+    @Test
+    void usernameOwnedByAnotherEmailIsAConflict() {
+        jdbc.update("INSERT INTO users (username, email, active, failed_attempts) VALUES ('a@example.com', 'other@example.com', 1, 0)");
+
+        OAuth2AuthenticationException e = assertThrows(OAuth2AuthenticationException.class,
+                () -> service.provision("google", "a@example.com", "g-1", "Alice", null));
+        assertEquals("account_conflict", e.getError().getErrorCode());
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM user_profiles", Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM user_tokens", Integer.class));
+    }
+}
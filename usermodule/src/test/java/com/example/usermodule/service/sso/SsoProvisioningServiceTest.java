@@ -0,0 +1,132 @@
+package com.example.usermodule.service.sso;
+
+import com.example.usermodule.data.entity.Role;
+import com.example.usermodule.data.pojo.TokenPair;
+import com.example.usermodule.data.response.AuthResponse;
+import com.example.usermodule.repository.RolePermissionRepository;
+import com.example.usermodule.repository.UserRoleRepository;
+import com.example.usermodule.service.JwtService;
+import com.example.usermodule.service.RbacCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đếm số SQL statement của 1 lượt đăng nhập SSO:
+ * JDBC đếm ở tầng Connection.prepareStatement, RBAC đếm qua số lần gọi repository.
+ * JDBC là mock (query nào cũng trả 1 dòng) nên không kiểm tra kết quả CTE, xem SsoProvisioningPostgresTest
+ */
+class SsoProvisioningServiceTest {
+
+    private static final long USER_ID = 42L;
+    private static final UUID USER_UID = UUID.randomUUID();
+
+    private final List<String> statements = new ArrayList<>();
+
+    private UserRoleRepository userRoleRepository;
+    private RolePermissionRepository rolePermissionRepository;
+    private JwtService jwtService;
+    private SsoProvisioningService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userRoleRepository = mock(UserRoleRepository.class);
+        rolePermissionRepository = mock(RolePermissionRepository.class);
+        jwtService = mock(JwtService.class);
+
+        Role role = new Role();
+        role.setId(1L);
+        role.setName("USER");
+        when(userRoleRepository.findRoleEntitiesByUserId(USER_ID)).thenReturn(List.of(role));
+        when(rolePermissionRepository.findPermissionsByRoleId(1L)).thenReturn(List.of());
+        when(jwtService.generateTokenPair(anyString(), any(), any(), any()))
+                .thenReturn(new TokenPair("access", "refresh"));
+
+        RbacCache rbacCache = new RbacCache(userRoleRepository, rolePermissionRepository, new SimpleMeterRegistry());
+        service = new SsoProvisioningService(new JdbcTemplate(countingDataSource()), rbacCache, jwtService);
+    }
+
+    @Test
+    void firstLoginUsesTwoStatementsPlusOneRbacLoad() {
+        AuthResponse auth = service.provision("google", "a@example.com", "sub-1", "A", "https://img/a.png");
+
+        assertEquals(2, statements.size(), () -> "statements: " + statements);
+        assertTrue(statements.get(0).contains("INSERT INTO user_profiles"));
+        assertTrue(statements.get(1).contains("INSERT INTO user_tokens"));
+        verify(userRoleRepository, times(1)).findRoleEntitiesByUserId(anyLong());
+        verify(rolePermissionRepository, times(1)).findPermissionsByRoleId(anyLong());
+        verify(jwtService, times(1)).generateTokenPair(anyString(), any(), any(), any());
+
+        assertEquals("a@example.com", auth.getUsername());
+        assertEquals(Set.of("USER"), auth.getRoles());
+        assertEquals("access", auth.getAccessToken());
+        assertEquals("refresh", auth.getRefreshToken());
+    }
+
+    @Test
+    void repeatLoginWithWarmRbacUsesOnlyTwoStatements() {
+        service.provision("google", "a@example.com", "sub-1", "A", "https://img/a.png");
+        statements.clear();
+
+        service.provision("google", "a@example.com", "sub-1", "A", "https://img/a.png");
+
+        assertEquals(2, statements.size(), () -> "statements: " + statements);
+        // RBAC vẫn chỉ load 1 lần từ lượt đầu
+        verify(userRoleRepository, times(1)).findRoleEntitiesByUserId(anyLong());
+        verify(rolePermissionRepository, times(1)).findPermissionsByRoleId(anyLong());
+        verify(jwtService, times(2)).generateTokenPair(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void avatarOfReadsGoogleAndFacebookShapes() {
+        assertEquals("g.png", SsoProvisioningService.avatarOf(Map.of("picture", "g.png")));
+        assertEquals("f.png", SsoProvisioningService.avatarOf(
+                Map.of("picture", Map.of("data", Map.of("url", "f.png")))));
+        assertNull(SsoProvisioningService.avatarOf(Map.of()));
+    }
+
+    // DataSource giả: ghi lại mọi statement, query account trả về 1 dòng, update trả về 1
+    private DataSource countingDataSource() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenAnswer(inv -> connection);
+
+        when(connection.prepareStatement(anyString())).thenAnswer(inv -> {
+            statements.add(inv.getArgument(0));
+
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.next()).thenReturn(true, false);
+            when(rs.getLong("id")).thenReturn(USER_ID);
+            when(rs.getObject("uid", UUID.class)).thenReturn(USER_UID);
+            when(rs.getString("username")).thenReturn("a@example.com");
+
+            PreparedStatement ps = mock(PreparedStatement.class);
+            when(ps.executeQuery()).thenReturn(rs);
+            when(ps.executeUpdate()).thenReturn(1);
+            return ps;
+        });
+        return dataSource;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.usermodule.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void noFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        long[] values = new SplittableRandom(42).longs(10_000).toArray();
+        for (long v : values) filter.put(v);
+
+        for (long v : values) {
+            assertTrue(filter.mightContain(v), "false negative for " + v);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        LongStream.range(0, 10_000).forEach(filter::put);
+
+        long falsePositives = LongStream.range(1_000_000, 1_100_000).filter(filter::mightContain).count();
+        // Mục tiêu 1%: cho phép dư gấp đôi để test không chập chờn
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            long base = t * 10_000L;
+            writers[t] = new Thread(() -> LongStream.range(base, base + 10_000).forEach(filter::put));
+            writers[t].start();
+        }
+        for (Thread writer : writers) writer.join();
+
+        assertTrue(LongStream.range(0, 40_000).allMatch(filter::mightContain));
+    }
+}
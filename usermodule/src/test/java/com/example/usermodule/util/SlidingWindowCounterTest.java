@@ -0,0 +1,72 @@
+package com.example.usermodule.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    // Cửa sổ 10s = 10 lát 1s
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(10_000);
+
+    @Test
+    void countsWithinWindow() {
+        assertEquals(1, counter.increment(1_000));
+        assertEquals(2, counter.increment(1_500));
+        assertEquals(3, counter.increment(9_999));
+        assertEquals(3, counter.count(10_500));
+    }
+
+    @Test
+    void oldSlicesSlideOut() {
+        counter.increment(1_000);
+        counter.increment(5_000);
+
+        // Lát 1 ra khỏi cửa sổ ở giây 11, lát 5 ở giây 15
+        assertEquals(2, counter.count(10_999));
+        assertEquals(1, counter.count(11_000));
+        assertEquals(0, counter.count(15_000));
+    }
+
+    @Test
+    void reusedSlotStartsFromZero() {
+        counter.increment(3_000);
+        counter.increment(3_100);
+
+        // Cùng slot (3 % 10) nhưng lát 13: ghi đè chứ không cộng dồn
+        assertEquals(1, counter.increment(13_000));
+        assertEquals(1, counter.count(13_000));
+    }
+
+    @Test
+    void resetClearsAllSlices() {
+        counter.increment(1_000);
+        counter.increment(2_000);
+        counter.reset();
+
+        assertEquals(0, counter.count(2_000));
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) counter.increment(4_000 + i % 900);
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8_000, counter.count(4_999));
+    }
+}